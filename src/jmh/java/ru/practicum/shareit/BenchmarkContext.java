@@ -0,0 +1,113 @@
+package ru.practicum.shareit;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// приложение с заполненной базой: на встроенной H2 (профиль test) или на PostgreSQL из application.properties,
+// где поиск идет через GIN-индексы pg_trgm. Адрес базы PostgreSQL переопределяется системными свойствами форка:
+// -jvmArgsAppend -Dspring.datasource.url=jdbc:postgresql://host:5432/shareit_bench. Ее таблицы очищаются перед
+// заполнением. Вещь itemId принадлежит ownerOf(itemId), все вещи доступны, брони вещи делают пользователи,
+// не являющиеся ее владельцами
+final class BenchmarkContext {
+
+    static final int USERS = 1000;
+
+    static final String SEARCH_TEXT = "дрель";
+
+    static final String H2 = "h2";
+
+    static final String POSTGRESQL = "postgresql";
+
+    private static final String[] WORDS = {"дрель", "перфоратор", "лестница", "палатка", "велосипед", "шуруповерт",
+            "пила", "стремянка", "котел", "байдарка", "проектор", "самокат", "удочка", "мангал", "надувная лодка"};
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(int itemCount, int bookingCount, String... properties) {
+        return start(H2, itemCount, bookingCount, properties);
+    }
+
+    static ConfigurableApplicationContext start(String database, int itemCount, int bookingCount,
+                                                String... properties) {
+        if (!H2.equals(database) && !POSTGRESQL.equals(database)) {
+            throw new IllegalArgumentException("Неизвестная база: " + database);
+        }
+        List<String> allProperties = new ArrayList<>(List.of(
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.transaction.interceptor=WARN",
+                "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN",
+                "spring.jpa.show-sql=false"));
+        allProperties.addAll(List.of(properties));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .properties(allProperties.toArray(new String[0]));
+        if (H2.equals(database)) {
+            builder.profiles("test");
+        }
+        ConfigurableApplicationContext context = builder.run();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (POSTGRESQL.equals(database)) { // база переживает запуски - айди должны снова начинаться с 1
+            jdbcTemplate.execute("truncate table comments, bookings, items, requests, users restart identity");
+        }
+        seed(jdbcTemplate, itemCount, bookingCount);
+        if (POSTGRESQL.equals(database)) { // статистика для планировщика, иначе GIN-индекс может не использоваться
+            jdbcTemplate.execute("analyze");
+        }
+        return context;
+    }
+
+    static long ownerOf(long itemId) {
+        return (itemId - 1) % USERS + 1;
+    }
+
+    static long bookerOf(long itemId) {
+        return ownerOf(itemId) % USERS + 1;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int itemCount, int bookingCount) {
+        Random random = new Random(42);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            users.add(new Object[]{"user" + i, "user" + i + "@email.ru"});
+        }
+        insert(jdbcTemplate, "insert into users (name, email) values (?, ?)", users);
+
+        List<Object[]> items = new ArrayList<>();
+        for (long i = 1; i <= itemCount; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)];
+            String description = name + " " + WORDS[random.nextInt(WORDS.length)] + " в хорошем состоянии";
+            items.add(new Object[]{name, description, ownerOf(i), true});
+        }
+        insert(jdbcTemplate, "insert into items (name, description, owner_id, available) values (?, ?, ?, ?)", items);
+
+        // у каждой вещи прошлые, текущие и будущие брони, по дню каждая с шагом в десять дней
+        LocalDateTime now = LocalDateTime.now();
+        String[] statuses = {"APPROVED", "APPROVED", "WAITING", "REJECTED"};
+        List<Object[]> bookings = new ArrayList<>();
+        for (long i = 0; i < bookingCount; i++) {
+            long itemId = i % itemCount + 1;
+            LocalDateTime start = now.minusDays(30).plusDays(i / itemCount * 10);
+            bookings.add(new Object[]{itemId, Timestamp.valueOf(start), Timestamp.valueOf(start.plusDays(1)),
+                    bookerOf(itemId), statuses[(int) (i % statuses.length)]});
+        }
+        insert(jdbcTemplate, "insert into bookings (item_id, booking_from, booking_to, booker_id, status) " +
+                "values (?, ?, ?, ?, ?)", bookings);
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += INSERT_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + INSERT_BATCH_SIZE)));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// пропускная способность проверки пересечений в 16 потоков: каждый поток бронирует свою вещь (блокировки
+// разных полос не мешают друг другу) либо все потоки бронируют одну вещь. Бронь сразу снимается,
+// чтобы размер дерева не рос за время замера. База не нужна: деревья новых вещей пустые
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class BookingIntervalIndexBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Index {
+
+        private final AtomicLong ids = new AtomicLong();
+
+        private final LocalDateTime firstStart = LocalDateTime.now().plusDays(1);
+
+        private final Item sharedItem = Item.builder().id(0L).build();
+
+        private BookingIntervalIndex bookingIntervalIndex;
+
+        @Setup
+        public void setUp() {
+            BookingRepository bookingRepository = (BookingRepository) Proxy.newProxyInstance(
+                    BookingRepository.class.getClassLoader(), new Class<?>[]{BookingRepository.class},
+                    (proxy, method, args) -> List.of()); // getActiveIntervals: у вещи еще нет броней
+            bookingIntervalIndex = new BookingIntervalIndex(10000, 256, bookingRepository);
+        }
+
+        private Booking booking(Item item) {
+            long id = ids.incrementAndGet();
+            LocalDateTime start = firstStart.plusDays(id * 2);
+            return Booking.builder()
+                    .id(id)
+                    .item(item)
+                    .start(start)
+                    .end(start.plusDays(1))
+                    .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadItem {
+
+        private static final AtomicLong ITEM_IDS = new AtomicLong();
+
+        private final Item item = Item.builder().id(ITEM_IDS.incrementAndGet()).build();
+    }
+
+    @Benchmark
+    public Booking admitDifferentItems(Index index, ThreadItem threadItem) {
+        return admitAndRelease(index, index.booking(threadItem.item));
+    }
+
+    @Benchmark
+    public Booking admitSameItem(Index index) {
+        return admitAndRelease(index, index.booking(index.sharedItem));
+    }
+
+    private Booking admitAndRelease(Index index, Booking booking) {
+        Booking admitted = index.bookingIntervalIndex.admit(booking, () -> booking);
+        index.bookingIntervalIndex.release(admitted);
+        return admitted;
+    }
+}
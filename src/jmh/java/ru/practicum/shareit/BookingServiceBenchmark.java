@@ -0,0 +1,65 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingServiceBenchmark {
+
+    @Param({"10000"})
+    public int itemCount;
+
+    private final AtomicLong bookings = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private BookingService bookingService;
+
+    private LocalDateTime firstStart;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(itemCount, itemCount * 5);
+        bookingService = context.getBean(BookingService.class);
+        firstStart = LocalDateTime.now().plusYears(1); // позже всех засеянных броней
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookingDtoResponse> getOwnerBookings() {
+        return bookingService.getOwnerBookings(1L, "ALL", 0, 20);
+    }
+
+    // задержка создания брони: вещи перебираются по кругу, каждая следующая бронь вещи на два дня позже
+    // предыдущей, поэтому пересечений нет
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public BookingDto addBooking() {
+        long number = bookings.getAndIncrement();
+        long itemId = number % itemCount + 1;
+        LocalDateTime start = firstStart.plusDays(number / itemCount * 2);
+        BookingDto bookingDto = BookingDto.builder()
+                .itemId(itemId)
+                .start(start)
+                .end(start.plusDays(1))
+                .build();
+        return bookingService.addBooking(BenchmarkContext.bookerOf(itemId), bookingDto);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.GetRequestInfo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// кэш результатов поиска выключен: findItemsByText меряет индекс и загрузку вещей, а не попадание в кэш.
+// searchByLike - прежний поиск через like по всей таблице, для сравнения на большой базе: -p itemCount=1000000.
+// Индекс триграмм в памяти (H2) против GIN-индекса PostgreSQL (аргументы одной строкой):
+// mvn -P benchmark -DskipTests verify -Djmh.args="ItemServiceBenchmark.findItemsByText -p database=h2,postgresql
+// -jvmArgsAppend -Dspring.datasource.url=jdbc:postgresql://localhost:5432/shareit_bench"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemServiceBenchmark {
+
+    @Param({"10000"})
+    public int itemCount;
+
+    @Param({BenchmarkContext.H2})
+    public String database;
+
+    private ConfigurableApplicationContext context;
+
+    private ItemService itemService;
+
+    private ItemRepository itemRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(database, itemCount, itemCount * 5, "shareit.search.cache.max-size=0");
+        itemService = context.getBean(ItemService.class);
+        itemRepository = context.getBean(ItemRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ItemDtoWithBooking> findAllUserItems() {
+        return itemService.findAllUserItems(GetRequestInfo.of(1L, 0, 20));
+    }
+
+    @Benchmark
+    public List<ItemDto> findItemsByText() {
+        return itemService.findItemsByText(BenchmarkContext.SEARCH_TEXT, 0, 20);
+    }
+
+    @Benchmark
+    public List<Item> searchByLike() {
+        return itemRepository.findItemsByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableEquals(
+                BenchmarkContext.SEARCH_TEXT, BenchmarkContext.SEARCH_TEXT, true, PageRequest.of(0, 20));
+    }
+}
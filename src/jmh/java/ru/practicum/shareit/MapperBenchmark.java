@@ -0,0 +1,78 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingMapper;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.item.ItemMapper;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private final BookingMapper bookingMapper = new BookingMapper();
+
+    private final ItemMapper itemMapper = new ItemMapper();
+
+    private Booking booking;
+
+    private Item item;
+
+    private ItemDto itemDto;
+
+    @Setup
+    public void setUp() {
+        User booker = new User();
+        booker.setId(2L);
+        booker.setName("booker");
+        booker.setEmail("booker@email.ru");
+        item = Item.builder()
+                .id(1L)
+                .name("Дрель")
+                .description("Ударная дрель")
+                .ownerId(1L)
+                .available(true)
+                .build();
+        booking = Booking.builder()
+                .id(1L)
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .status(Status.WAITING)
+                .booker(booker)
+                .item(item)
+                .build();
+        itemDto = itemMapper.mapFromItem(item);
+    }
+
+    @Benchmark
+    public BookingDtoResponse mapFromBookingResponse() {
+        return bookingMapper.mapFromBookingResponse(booking);
+    }
+
+    @Benchmark
+    public ItemDto mapFromItem() {
+        return itemMapper.mapFromItem(item);
+    }
+
+    @Benchmark
+    public Item mapFromItemDto() {
+        return itemMapper.mapFromItemDto(itemDto);
+    }
+
+    @Benchmark
+    public ItemDtoWithBooking mapFromItemForItemWithBooking() {
+        return itemMapper.mapFromItemForItemWithBooking(item);
+    }
+}
@@ -7,6 +7,7 @@ import ru.practicum.shareit.user.User;
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Getter
 @Setter
@@ -33,9 +34,25 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     private Status status;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @Version
+    private Long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     private User booker;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     private Item item;
+
+    // база хранит время с точностью до микросекунд - курсор по start должен совпадать с сохраненной строкой
+    @PrePersist
+    void truncateDates() {
+        start = toStoredPrecision(start);
+        end = toStoredPrecision(end);
+    }
+
+    static LocalDateTime toStoredPrecision(LocalDateTime time) {
+        return time == null ? null : time.truncatedTo(ChronoUnit.MICROS);
+    }
 }
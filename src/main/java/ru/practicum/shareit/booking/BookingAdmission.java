@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+// вещь и букер, нужные для проверки и оформления новой брони. null - такой записи нет
+@Getter
+public class BookingAdmission {
+
+    private final Item item;
+
+    private final User booker;
+
+    public BookingAdmission(Item item, User booker) {
+        this.item = item;
+        this.booker = booker;
+    }
+}
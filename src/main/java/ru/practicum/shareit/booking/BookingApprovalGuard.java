@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking;
+
+import java.util.Collection;
+
+public interface BookingApprovalGuard {
+
+    // выполняет update, переводящий брони в APPROVED. ConflictException, если даты хотя бы одной из них уже
+    // заняты другой подтвержденной бронью - update при этом не применяется
+    void approve(Collection<Booking> bookings, Runnable update);
+}
@@ -1,9 +1,17 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.idempotency.IdempotencyStore;
+import ru.practicum.shareit.streaming.NdjsonResponse;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -15,14 +23,26 @@ import java.util.List;
 public class BookingController {
     private final BookingService bookingService;
 
-    public BookingController(BookingService bookingService) {
+    private final ObjectMapper objectMapper;
+
+    private final IdempotencyStore idempotencyStore;
+
+    public BookingController(BookingService bookingService, ObjectMapper objectMapper,
+                             IdempotencyStore idempotencyStore) {
         this.bookingService = bookingService;
+        this.objectMapper = objectMapper;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping
-    BookingDto addBooking(@RequestHeader("X-Sharer-User-Id") Long bookerId, @Valid @RequestBody BookingDto booking) {
+    BookingDto addBooking(@RequestHeader("X-Sharer-User-Id") Long bookerId, @Valid @RequestBody BookingDto booking,
+                          @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("Принят запрос на бронь предмета от пользователя с айди: {}", bookerId);
-        return bookingService.addBooking(bookerId, booking);
+        if (idempotencyKey == null) {
+            return bookingService.addBooking(bookerId, booking);
+        }
+        return idempotencyStore.execute("bookings:" + bookerId + ":" + idempotencyKey, booking,
+                () -> bookingService.addBooking(bookerId, booking));
     }
 
     @PatchMapping("/{bookingId}")
@@ -32,6 +52,13 @@ public class BookingController {
         return bookingService.approve(ownerId, bookingId, approved);
     }
 
+    @PatchMapping("/batch")
+    List<BookingDecisionResultDto> approveBookings(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                   @RequestBody List<BookingDecisionDto> decisions) {
+        log.info("Принят запрос на пакетное подтверждение броней от пользователя с айди: {}", ownerId);
+        return bookingService.approveAll(ownerId, decisions);
+    }
+
     @GetMapping("/{bookingId}")
     BookingDtoResponse getBooking(@RequestHeader("X-Sharer-User-Id") Long userId, @PathVariable Long bookingId) {
         log.info("Принят запрос на просмотр брони предмета от пользователя с айди: {}", userId);
@@ -56,4 +83,32 @@ public class BookingController {
         return bookingService.getOwnerBookings(userId, state, from, size);
     }
 
+    @GetMapping(path = "/owner", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> streamOwnerBookings(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestParam(defaultValue = "ALL", required = false) String state) {
+        log.info("Принят запрос на потоковую выгрузку бронирований владельца");
+        return NdjsonResponse.of(objectMapper, bookingService.streamOwnerBookings(userId, state));
+    }
+
+    @GetMapping(params = "cursor")
+    ResponseEntity<List<BookingDtoResponse>> getUserBookingsByCursor(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestParam(defaultValue = "ALL", required = false) String state,
+            @RequestParam String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("Принят запрос на просмотр бронирований пользователя по курсору");
+        return bookingService.getUserBookingsByCursor(userId, state, cursor, size).toResponseEntity();
+    }
+
+    @GetMapping(path = "/owner", params = "cursor")
+    ResponseEntity<List<BookingDtoResponse>> getOwnerBookingsByCursor(
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestParam(defaultValue = "ALL", required = false) String state,
+            @RequestParam String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("Принят запрос на просмотр владельцем его бронирований по курсору");
+        return bookingService.getOwnerBookingsByCursor(userId, state, cursor, size).toResponseEntity();
+    }
+
 }
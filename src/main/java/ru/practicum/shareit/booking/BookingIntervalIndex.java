@@ -0,0 +1,120 @@
+package ru.practicum.shareit.booking;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.item.dto.ForItemBookingDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// ожидающие и подтвержденные бронирования каждой вещи в интервальном дереве: пересечение новой брони
+// проверяется за O(log n) без запроса в базу. Проверка и сохранение идут под блокировкой вещи
+// (блокировки разбиты на полосы по айди вещи), поэтому две пересекающиеся брони не пройдут одновременно
+@Slf4j
+@Component
+public class BookingIntervalIndex {
+
+    private static final List<Status> ACTIVE_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+
+    private final ReentrantLock[] stripes;
+
+    private final Cache<Long, IntervalTree> trees;
+
+    private final BookingRepository bookingRepository;
+
+    public BookingIntervalIndex(@Value("${shareit.booking-index.max-items:10000}") long maxItems,
+                                @Value("${shareit.booking-index.lock-stripes:256}") int lockStripes,
+                                BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+        this.trees = Caffeine.newBuilder()
+                .maximumSize(maxItems)
+                .build();
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // save вызывается только если бронь ни с чем не пересекается; сохраненная бронь сразу попадает в дерево
+    public Booking admit(Booking booking, Supplier<Booking> save) {
+        Long itemId = booking.getItem().getId();
+        ReentrantLock lock = stripe(itemId);
+        lock.lock();
+        try {
+            IntervalTree tree = tree(itemId);
+            if (tree.overlaps(booking.getStart(), booking.getEnd())) {
+                log.error("Ошибка бронирования. Вещь уже забронирована на эти даты");
+                throw new ConflictException("Ошибка бронирования. Вещь уже забронирована на эти даты");
+            }
+            Booking savedBooking = save.get();
+            tree.insert(savedBooking.getId(), savedBooking.getStart(), savedBooking.getEnd());
+            reloadOnRollback(itemId);
+            return savedBooking;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // отклоненная бронь больше не занимает даты
+    public void release(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        ReentrantLock lock = stripe(itemId);
+        lock.lock();
+        try {
+            IntervalTree tree = trees.getIfPresent(itemId);
+            if (tree != null) {
+                tree.remove(booking.getId(), booking.getStart());
+            }
+            reloadOnRollback(itemId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // брони вещи изменились в обход индекса - дерево перечитается из базы при следующей проверке
+    public void reload(Long itemId) {
+        ReentrantLock lock = stripe(itemId);
+        lock.lock();
+        try {
+            trees.invalidate(itemId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private IntervalTree tree(Long itemId) {
+        return trees.get(itemId, id -> {
+            IntervalTree tree = new IntervalTree();
+            // закончившиеся брони не могут пересечься с новыми: дата начала новой брони не раньше текущего момента
+            List<ForItemBookingDto> bookings = bookingRepository.getActiveIntervals(id, ACTIVE_STATUSES,
+                    LocalDateTime.now());
+            bookings.forEach(bk -> tree.insert(bk.getId(), bk.getStart(), bk.getEnd()));
+            return tree;
+        });
+    }
+
+    private ReentrantLock stripe(Long itemId) {
+        return stripes[Math.floorMod(Long.hashCode(itemId * 0x9E3779B97F4A7C15L), stripes.length)];
+    }
+
+    private void reloadOnRollback(Long itemId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        trees.invalidate(itemId); // дерево перечитается из базы при следующей брони
+                    }
+                }
+            });
+        }
+    }
+}
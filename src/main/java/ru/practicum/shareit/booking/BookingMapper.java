@@ -25,8 +25,9 @@ public class BookingMapper {
     public Booking mapFromBookingDto(BookingDto bookingDto) {
         return Booking.builder()
                 .id(bookingDto.getId())
-                .start(bookingDto.getStart())
-                .end(bookingDto.getEnd())
+                // проверка пересечений сравнивает даты с уже сохраненными - в той же точности, что и в базе
+                .start(Booking.toStoredPrecision(bookingDto.getStart()))
+                .end(Booking.toStoredPrecision(bookingDto.getEnd()))
                 .status(bookingDto.getStatus())
                 .build();
     }
@@ -0,0 +1,64 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.pagination.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// выборка бронирований пользователя: роль (букер или владелец вещи), состояние на один момент времени now
+// и страница - смещением или курсором. Любая комбинация выполняется одним запросом на роль с условиями
+// user = ? и диапазоном по booking_from, которые покрываются индексами (booker_id, booking_from)
+// и (item_id, booking_from)
+class BookingQuery {
+
+    enum Role {
+        BOOKER,
+        OWNER
+    }
+
+    // курсор первой страницы - правее любой брони
+    private static final Cursor FIRST = Cursor.of(Cursor.MAX_TIME, Long.MAX_VALUE);
+
+    private final Role role;
+
+    private final Long userId;
+
+    private final BookingWindow window;
+
+    private Cursor after = FIRST;
+
+    private Pageable pageable = Pageable.unpaged();
+
+    private BookingQuery(Role role, Long userId, BookingWindow window) {
+        this.role = role;
+        this.userId = userId;
+        this.window = window;
+    }
+
+    static BookingQuery of(Role role, Long userId, State state, LocalDateTime now) {
+        return new BookingQuery(role, userId, BookingWindow.of(state, now));
+    }
+
+    // null - первая страница
+    BookingQuery after(Cursor after) {
+        this.after = after == null ? FIRST : after;
+        return this;
+    }
+
+    BookingQuery page(Pageable pageable) {
+        this.pageable = pageable;
+        return this;
+    }
+
+    List<Booking> fetch(BookingRepository bookingRepository) {
+        if (role == Role.OWNER) {
+            return bookingRepository.getOwnerBookingsAfterCursor(userId, window.getStatuses(),
+                    window.getStartFrom(), window.getStartTo(), window.getEndFrom(), window.getEndTo(),
+                    after.getTime(), after.getId(), pageable);
+        }
+        return bookingRepository.getBookerBookingsAfterCursor(userId, window.getStatuses(),
+                window.getStartFrom(), window.getStartTo(), window.getEndFrom(), window.getEndTo(),
+                after.getTime(), after.getId(), pageable);
+    }
+}
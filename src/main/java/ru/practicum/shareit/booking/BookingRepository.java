@@ -1,92 +1,28 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.item.dto.ForItemBookingDto;
+import ru.practicum.shareit.item.dto.ForItemsBookingDto;
+
+import javax.persistence.QueryHint;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     Booking getBookingById(Long id);
 
-    List<Booking> getBookingsByBooker_IdOrderByStartDesc(Long bookerId);
-
-    List<Booking> getBookingsByBooker_IdOrderByStartDesc(Long bookerId, Pageable pageable);
-
-    List<Booking> getBookingsByBooker_IdAndStatusEqualsOrderByStartDesc(Long bookerId, Status status);
-
-
-    List<Booking> getBookingsByBooker_IdAndStatusEqualsOrderByStartDesc(Long bookerId, Status status, Pageable pageable);
-
-    List<Booking> getBookingsByBooker_IdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                  LocalDateTime start,
-                                                                                  LocalDateTime end);
-
-    List<Booking> getBookingsByBooker_IdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                  LocalDateTime start,
-                                                                                  LocalDateTime end,
-                                                                                  Pageable pageable);
-
-    List<Booking> getBookingsByBooker_IdAndStartBeforeAndEndBeforeOrderByStartDesc(Long bookerId,
-                                                                                   LocalDateTime start,
-                                                                                   LocalDateTime end);
-
-    List<Booking> getBookingsByBooker_IdAndStartBeforeAndEndBeforeOrderByStartDesc(Long bookerId,
-                                                                                   LocalDateTime start,
-                                                                                   LocalDateTime end,
-                                                                                   Pageable pageable);
-
-    List<Booking> getBookingsByBooker_IdAndStartAfterAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                 LocalDateTime start,
-                                                                                 LocalDateTime end);
-
-    List<Booking> getBookingsByBooker_IdAndStartAfterAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                 LocalDateTime start,
-                                                                                 LocalDateTime end,
-                                                                                 Pageable pageable);
-
-    List<Booking> getBookingsByItemOwnerIdOrderByStartDesc(Long itemOwnerId);
-
-    List<Booking> getBookingsByItemOwnerIdOrderByStartDesc(Long itemOwnerId, Pageable pageable);
-
-    List<Booking> getBookingsByItemOwnerIdAndStatusEqualsOrderByStartDesc(Long bookerId, Status status);
-
-    List<Booking> getBookingsByItemOwnerIdAndStatusEqualsOrderByStartDesc(Long bookerId,
-                                                                          Status status,
-                                                                          Pageable pageable);
-
-    List<Booking> getBookingsByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                    LocalDateTime start,
-                                                                                    LocalDateTime end);
-
-    List<Booking> getBookingsByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                    LocalDateTime start,
-                                                                                    LocalDateTime end,
-                                                                                    Pageable pageable);
-
-    List<Booking> getBookingsByItemOwnerIdAndStartBeforeAndEndBeforeOrderByStartDesc(Long bookerId,
-                                                                                     LocalDateTime start,
-                                                                                     LocalDateTime end);
-
-    List<Booking> getBookingsByItemOwnerIdAndStartBeforeAndEndBeforeOrderByStartDesc(Long bookerId,
-                                                                                     LocalDateTime start,
-                                                                                     LocalDateTime end,
-                                                                                     Pageable pageable);
-
-    List<Booking> getBookingsByItemOwnerIdAndStartAfterAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                   LocalDateTime start,
-                                                                                   LocalDateTime end);
-
-    List<Booking> getBookingsByItemOwnerIdAndStartAfterAndEndAfterOrderByStartDesc(Long bookerId,
-                                                                                   LocalDateTime start,
-                                                                                   LocalDateTime end,
-                                                                                   Pageable pageable);
-
-
     @Query("select new ru.practicum.shareit.item.dto.ForItemBookingDto(bk.id, bk.start " +
             ",bk.end , bk.booker.id )" +
             "from Booking as bk " +
@@ -99,6 +35,100 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "where (bk.start > current_timestamp and bk.item.id = :id)")
     List<ForItemBookingDto> getNextBooking(@Param("id") Long id, Pageable pageable);
 
+    // все бронирования пачки вещей - для BookingTimeline
+    @Query("select new ru.practicum.shareit.item.dto.ForItemsBookingDto(bk.item.id, bk.id, bk.start, " +
+            "bk.end, bk.booker.id) " +
+            "from Booking as bk " +
+            "where bk.item.id in :ids")
+    List<ForItemsBookingDto> getTimelineBookings(@Param("ids") Collection<Long> ids);
+
+    @Query("select new ru.practicum.shareit.item.dto.ForItemBookingDto(bk.id, bk.start, bk.end, bk.booker.id) " +
+            "from Booking as bk " +
+            "where bk.item.id = :itemId and bk.status in :statuses and bk.end > :now")
+    List<ForItemBookingDto> getActiveIntervals(@Param("itemId") Long itemId,
+                                               @Param("statuses") Collection<Status> statuses,
+                                               @Param("now") LocalDateTime now);
+
+    // выборки бронирований по роли и состоянию - см. BookingQuery. Для offset-страниц курсор стоит на MAX_TIME
+    @Query("select bk from Booking as bk join fetch bk.item join fetch bk.booker " +
+            "where bk.booker.id = :userId and bk.status in :statuses " +
+            "and bk.start > :startFrom and bk.start < :startTo and bk.end > :endFrom and bk.end < :endTo " +
+            "and (bk.start < :cursorStart or (bk.start = :cursorStart and bk.id < :cursorId)) " +
+            "order by bk.start desc, bk.id desc")
+    List<Booking> getBookerBookingsAfterCursor(@Param("userId") Long userId,
+                                               @Param("statuses") Collection<Status> statuses,
+                                               @Param("startFrom") LocalDateTime startFrom,
+                                               @Param("startTo") LocalDateTime startTo,
+                                               @Param("endFrom") LocalDateTime endFrom,
+                                               @Param("endTo") LocalDateTime endTo,
+                                               @Param("cursorStart") LocalDateTime cursorStart,
+                                               @Param("cursorId") Long cursorId,
+                                               Pageable pageable);
+
+    @Query("select bk from Booking as bk join fetch bk.item as it join fetch bk.booker " +
+            "where it.ownerId = :userId and bk.status in :statuses " +
+            "and bk.start > :startFrom and bk.start < :startTo and bk.end > :endFrom and bk.end < :endTo " +
+            "and (bk.start < :cursorStart or (bk.start = :cursorStart and bk.id < :cursorId)) " +
+            "order by bk.start desc, bk.id desc")
+    List<Booking> getOwnerBookingsAfterCursor(@Param("userId") Long userId,
+                                              @Param("statuses") Collection<Status> statuses,
+                                              @Param("startFrom") LocalDateTime startFrom,
+                                              @Param("startTo") LocalDateTime startTo,
+                                              @Param("endFrom") LocalDateTime endFrom,
+                                              @Param("endTo") LocalDateTime endTo,
+                                              @Param("cursorStart") LocalDateTime cursorStart,
+                                              @Param("cursorId") Long cursorId,
+                                              Pageable pageable);
+
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query("select bk from Booking as bk join fetch bk.item as it join fetch bk.booker " +
+            "where it.ownerId = :userId and bk.status in :statuses " +
+            "and bk.start > :startFrom and bk.start < :startTo and bk.end > :endFrom and bk.end < :endTo " +
+            "order by bk.start desc, bk.id desc")
+    Stream<Booking> streamOwnerBookings(@Param("userId") Long userId,
+                                        @Param("statuses") Collection<Status> statuses,
+                                        @Param("startFrom") LocalDateTime startFrom,
+                                        @Param("startTo") LocalDateTime startTo,
+                                        @Param("endFrom") LocalDateTime endFrom,
+                                        @Param("endTo") LocalDateTime endTo);
+
+    // вещь (с владельцем и доступностью) и букер одним запросом. null - нет вещи, букер null - нет пользователя
+    @Query("select new ru.practicum.shareit.booking.BookingAdmission(it, u) " +
+            "from Item as it left join User as u on u.id = :bookerId " +
+            "where it.id = :itemId")
+    BookingAdmission getAdmission(@Param("itemId") Long itemId, @Param("bookerId") Long bookerId);
+
+    @Query("select bk from Booking as bk join fetch bk.item as it " +
+            "where it.ownerId = :ownerId and bk.id in :ids")
+    List<Booking> getOwnerBookingsByIds(@Param("ownerId") Long ownerId, @Param("ids") Collection<Long> ids);
+
+    // смена статуса одним update: проходит, только если в базе все еще статус from. 0 - статус уже изменили
+    @Transactional
+    @Modifying
+    @Query("update Booking as bk set bk.status = :to, bk.version = bk.version + 1 " +
+            "where bk.id = :id and bk.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") Status from, @Param("to") Status to);
+
+    @Transactional
+    @Modifying
+    @Query("update Booking as bk set bk.status = :to, bk.version = bk.version + 1 " +
+            "where bk.id in :ids and bk.status = :from")
+    int updateStatuses(@Param("ids") Collection<Long> ids, @Param("from") Status from, @Param("to") Status to);
+
+    // пачка броней со статусом status, начавшихся до now, по возрастанию айди после afterId
+    @Query("select new ru.practicum.shareit.item.dto.ForItemsBookingDto(bk.item.id, bk.id, bk.start, " +
+            "bk.end, bk.booker.id) " +
+            "from Booking as bk " +
+            "where bk.status = :status and bk.start < :now and bk.id > :afterId " +
+            "order by bk.id")
+    List<ForItemsBookingDto> getBookingsStartedBefore(@Param("status") Status status,
+                                                      @Param("now") LocalDateTime now,
+                                                      @Param("afterId") Long afterId,
+                                                      Pageable pageable);
+
+    boolean existsByItem_IdAndStatusAndIdNotAndStartBeforeAndEndAfter(Long itemId, Status status, Long id,
+                                                                      LocalDateTime end, LocalDateTime start);
 
     List<Booking> getBookingsByBooker_IdAndItemIdAndEndBeforeAndStatus(Long bookerId, Long itemId,
                                                                        LocalDateTime end, Status status);
@@ -1,7 +1,11 @@
 package ru.practicum.shareit.booking;
 
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.streaming.RowStream;
 
 import java.util.List;
 
@@ -11,10 +15,18 @@ public interface BookingService {
 
     BookingDtoResponse approve(Long ownerId, Long bookingId, Boolean approve);
 
+    List<BookingDecisionResultDto> approveAll(Long ownerId, List<BookingDecisionDto> decisions);
+
     BookingDtoResponse getBooking(Long userId, Long bookingId);
 
     List<BookingDtoResponse> getUserBookings(Long userId, String state, Integer from, Integer size);
 
     List<BookingDtoResponse> getOwnerBookings(Long userId, String state, Integer from, Integer size);
 
+    CursorPage<BookingDtoResponse> getUserBookingsByCursor(Long userId, String state, String cursor, Integer size);
+
+    CursorPage<BookingDtoResponse> getOwnerBookingsByCursor(Long userId, String state, String cursor, Integer size);
+
+    RowStream<BookingDtoResponse> streamOwnerBookings(Long userId, String state);
+
 }
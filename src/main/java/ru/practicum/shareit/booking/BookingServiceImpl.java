@@ -2,49 +2,119 @@ package ru.practicum.shareit.booking;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.events.EventHub;
+import ru.practicum.shareit.events.EventType;
 import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemCache;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.streaming.RowStream;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
 import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class BookingServiceImpl implements BookingService {
+
+    static final int MAX_DECISIONS = 500;
+
+    private static final String UPDATE_STATUS =
+            "update bookings set status = ?, version = version + 1 where id = ? and status = ?";
+
+    private static final String CANCELED_ERROR =
+            "Ошибка изменения статуса. Бронирование отменено: время его начала прошло";
+
     private final BookingMapper bookingMapper;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
 
     private final BookingRepository bookingRepository;
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final UserCache userCache;
+
+    private final ItemCache itemCache;
+
+    private final BookingTimeline bookingTimeline;
+
+    private final BookingIntervalIndex bookingIntervalIndex;
+
+    private final BookingApprovalGuard bookingApprovalGuard;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EventHub eventHub;
+
     public BookingServiceImpl(BookingMapper bookingMapper,
                               UserRepository userRepository,
                               ItemRepository itemRepository,
-                              BookingRepository bookingRepository) {
+                              BookingRepository bookingRepository,
+                              TransactionTemplate transactionTemplate,
+                              EntityManager entityManager,
+                              UserCache userCache,
+                              ItemCache itemCache,
+                              BookingTimeline bookingTimeline,
+                              BookingIntervalIndex bookingIntervalIndex,
+                              BookingApprovalGuard bookingApprovalGuard,
+                              JdbcTemplate jdbcTemplate,
+                              EventHub eventHub) {
         this.bookingMapper = bookingMapper;
         this.userRepository = userRepository;
         this.itemRepository = itemRepository;
         this.bookingRepository = bookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.userCache = userCache;
+        this.itemCache = itemCache;
+        this.bookingTimeline = bookingTimeline;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.bookingApprovalGuard = bookingApprovalGuard;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventHub = eventHub;
     }
 
     @Override
     public BookingDto addBooking(Long bookerId, BookingDto bookingDto) {
-        checkData(bookerId, bookingDto);
+        BookingAdmission admission = loadAdmission(bookerId, bookingDto.getItemId());
+        checkData(bookerId, bookingDto, admission);
         Booking booking = bookingMapper.mapFromBookingDto(bookingDto);
-        booking.setBooker(userRepository.getUserById(bookerId));
-        booking.setItem(itemRepository.getItemById(bookingDto.getItemId()));
+        // для записи нужны только внешние ключи - ссылки без загрузки букера и вещи
+        booking.setBooker(userRepository.getReferenceById(bookerId));
+        booking.setItem(itemRepository.getReferenceById(admission.getItem().getId()));
         booking.setStatus(Status.WAITING);
-        return bookingMapper.mapFromBooking(bookingRepository.save(booking));
+        Booking savedBooking = bookingIntervalIndex.admit(booking, () -> bookingRepository.save(booking));
+        bookingTimeline.add(savedBooking);
+        BookingDto savedBookingDto = bookingMapper.mapFromBooking(savedBooking);
+        savedBookingDto.setBooker(admission.getBooker());
+        savedBookingDto.setItem(admission.getItem());
+        return savedBookingDto;
     }
 
     @Override
@@ -64,14 +134,172 @@ public class BookingServiceImpl implements BookingService {
             log.error("Ошибка изменения статуса. Владелец уже подтвердил бронирование");
             throw new BadRequestException("Ошибка изменения статуса. Владелец уже подтвердил бронирование");
         }
-        if (approve) {
-            booking.setStatus(Status.APPROVED);
+        if (booking.getStatus().equals(Status.CANCELED)) {
+            // бронь снята по истечении срока и удалена из индекса интервалов - вернуть ее нельзя
+            log.error(CANCELED_ERROR);
+            throw new BadRequestException(CANCELED_ERROR);
+        }
+        if (approve && booking.getStatus().equals(Status.REJECTED)) {
+            // отклоненная бронь снова занимает даты - проверяем, не заняли ли их за это время
+            bookingIntervalIndex.admit(booking, () -> {
+                bookingApprovalGuard.approve(List.of(booking), () -> changeStatus(booking, Status.APPROVED));
+                return booking;
+            });
+        } else if (approve) {
+            bookingApprovalGuard.approve(List.of(booking), () -> changeStatus(booking, Status.APPROVED));
         } else {
-            booking.setStatus(Status.REJECTED);
+            changeStatus(booking, Status.REJECTED);
+            bookingIntervalIndex.release(booking);
         }
+        notifyBooker(booking.getBooker().getId(), bookingId, booking.getStatus());
+        // booking отсоединена от контекста и хранит даты с точностью до наносекунд, а база - до микросекунд:
+        // ответ строим по сохраненной строке, чтобы он совпадал с тем, что потом отдаст getBooking
+        return bookingMapper.mapFromBookingResponse(bookingRepository.getBookingById(bookingId));
+    }
 
-        bookingRepository.save(booking);
-        return bookingMapper.mapFromBookingResponse(booking);
+    @Override
+    public List<BookingDecisionResultDto> approveAll(Long ownerId, List<BookingDecisionDto> decisions) {
+        checkDecisions(ownerId, decisions);
+        // владение проверяется одним запросом: чужие и несуществующие брони просто не найдутся
+        Map<Long, Booking> bookings = bookingRepository.getOwnerBookingsByIds(ownerId, decisions.stream()
+                        .map(BookingDecisionDto::getBookingId)
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+        Map<Long, BookingDecisionResultDto> results = new HashMap<>();
+        List<BookingDecisionDto> batch = new ArrayList<>();
+        List<BookingDecisionDto> oneByOne = new ArrayList<>();
+        for (BookingDecisionDto decision : decisions) {
+            Long bookingId = decision.getBookingId();
+            Booking booking = bookings.get(bookingId);
+            if (booking == null) {
+                results.put(bookingId, failed(bookingId,
+                        "Бронирование с айди " + bookingId + " не найдено среди бронирований вещей владельца"));
+            } else if (booking.getStatus().equals(Status.APPROVED)) {
+                results.put(bookingId, failed(bookingId,
+                        "Ошибка изменения статуса. Владелец уже подтвердил бронирование"));
+            } else if (booking.getStatus().equals(Status.CANCELED)) {
+                results.put(bookingId, failed(bookingId, CANCELED_ERROR));
+            } else if (decision.getApproved() && booking.getStatus().equals(Status.REJECTED)) {
+                oneByOne.add(decision); // отклоненная бронь снова занимает даты - через индекс интервалов
+            } else {
+                batch.add(decision);
+            }
+        }
+        try {
+            int[] counts = changeStatuses(batch, bookings);
+            for (int i = 0; i < batch.size(); i++) {
+                Long bookingId = batch.get(i).getBookingId();
+                results.put(bookingId, counts[i] == 0
+                        ? failed(bookingId, "Ошибка изменения статуса. Статус бронирования уже изменен")
+                        : BookingDecisionResultDto.builder()
+                        .bookingId(bookingId)
+                        .status(targetStatus(batch.get(i)))
+                        .build());
+                if (counts[i] > 0) {
+                    notifyBooker(bookings.get(bookingId).getBooker().getId(), bookingId, targetStatus(batch.get(i)));
+                }
+            }
+        } catch (ConflictException e) {
+            // пачка откатилась из-за пересечения дат - по одной, чтобы найти конкретные брони
+            oneByOne.addAll(batch);
+        }
+        for (BookingDecisionDto decision : oneByOne) {
+            Long bookingId = decision.getBookingId();
+            try {
+                results.put(bookingId, BookingDecisionResultDto.builder()
+                        .bookingId(bookingId)
+                        .status(approve(ownerId, bookingId, decision.getApproved()).getStatus())
+                        .build());
+            } catch (NotFoundException | BadRequestException | ConflictException e) {
+                results.put(bookingId, failed(bookingId, e.getMessage()));
+            }
+        }
+        return decisions.stream()
+                .map(decision -> results.get(decision.getBookingId()))
+                .collect(Collectors.toList());
+    }
+
+    // все переходы одной jdbc-пачкой условных update в одной транзакции. 0 в ответе - статус брони успели
+    // изменить параллельно
+    private int[] changeStatuses(List<BookingDecisionDto> decisions, Map<Long, Booking> bookings) {
+        if (decisions.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = decisions.stream()
+                .map(decision -> new Object[]{targetStatus(decision).name(), decision.getBookingId(),
+                        bookings.get(decision.getBookingId()).getStatus().name()})
+                .collect(Collectors.toList());
+        List<Booking> approved = decisions.stream()
+                .filter(BookingDecisionDto::getApproved)
+                .map(decision -> bookings.get(decision.getBookingId()))
+                .collect(Collectors.toList());
+        return transactionTemplate.execute(status -> {
+            int[][] counts = new int[1][];
+            bookingApprovalGuard.approve(approved, () -> counts[0] = jdbcTemplate.batchUpdate(UPDATE_STATUS, args));
+            for (int i = 0; i < decisions.size(); i++) {
+                if (!decisions.get(i).getApproved() && counts[0][i] > 0) {
+                    bookingIntervalIndex.release(bookings.get(decisions.get(i).getBookingId()));
+                }
+            }
+            return counts[0];
+        });
+    }
+
+    // букеру не нужно опрашивать GET /bookings/{id}: решение приходит в его поток /events
+    private void notifyBooker(Long bookerId, Long bookingId, Status status) {
+        eventHub.publish(bookerId, EventType.BOOKING_DECIDED, BookingDecisionResultDto.builder()
+                .bookingId(bookingId)
+                .status(status)
+                .build());
+    }
+
+    private Status targetStatus(BookingDecisionDto decision) {
+        return decision.getApproved() ? Status.APPROVED : Status.REJECTED;
+    }
+
+    private BookingDecisionResultDto failed(Long bookingId, String error) {
+        log.error(error);
+        return BookingDecisionResultDto.builder()
+                .bookingId(bookingId)
+                .error(error)
+                .build();
+    }
+
+    private void checkDecisions(Long ownerId, List<BookingDecisionDto> decisions) {
+        if (userCache.get(ownerId) == null) {
+            log.error("Пользователь не найден");
+            throw new NotFoundException("Пользователь не найден");
+        }
+        if (decisions == null || decisions.isEmpty() || decisions.size() > MAX_DECISIONS) {
+            log.error("Ошибка пакетного подтверждения. В пачке должно быть от 1 до " + MAX_DECISIONS + " решений");
+            throw new BadRequestException("Ошибка пакетного подтверждения. " +
+                    "В пачке должно быть от 1 до " + MAX_DECISIONS + " решений");
+        }
+        Set<Long> bookingIds = new HashSet<>();
+        for (BookingDecisionDto decision : decisions) {
+            if (decision == null || decision.getBookingId() == null || decision.getApproved() == null) {
+                log.error("Ошибка пакетного подтверждения. У решения должны быть указаны бронь и approved");
+                throw new BadRequestException("Ошибка пакетного подтверждения. " +
+                        "У решения должны быть указаны бронь и approved");
+            }
+            if (!bookingIds.add(decision.getBookingId())) {
+                log.error("Ошибка пакетного подтверждения. Бронь " + decision.getBookingId() + " указана дважды");
+                throw new BadRequestException("Ошибка пакетного подтверждения. " +
+                        "Бронь " + decision.getBookingId() + " указана дважды");
+            }
+        }
+    }
+
+    // статус меняется условным update, а не сохранением прочитанной брони: из двух параллельных подтверждений
+    // пройдет только одно
+    private void changeStatus(Booking booking, Status status) {
+        if (bookingRepository.updateStatus(booking.getId(), booking.getStatus(), status) == 0) {
+            log.error("Ошибка изменения статуса. Статус бронирования уже изменен");
+            throw new ConflictException("Ошибка изменения статуса. Статус бронирования уже изменен");
+        }
+        entityManager.detach(booking); // прочитанная версия устарела - не даем ей попасть в базу при flush
+        booking.setStatus(status);
     }
 
     @Override
@@ -91,142 +319,106 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public List<BookingDtoResponse> getUserBookings(Long userId, String state, Integer from, Integer size) {
-        List<Booking> bookings = new ArrayList<>();
-        checkUserAndState(userId, state);
-        if (from == null || size == null) {
-            if (State.valueOf(state).equals(State.ALL)) {
-                bookings = bookingRepository.getBookingsByBooker_IdOrderByStartDesc(userId);
-            } else if (State.valueOf(state).equals(State.REJECTED)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStatusEqualsOrderByStartDesc(userId, Status.REJECTED);
-            } else if (State.valueOf(state).equals(State.WAITING)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStatusEqualsOrderByStartDesc(userId, Status.WAITING);
-            } else if (State.valueOf(state).equals(State.CURRENT)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStartBeforeAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now());
-            } else if (State.valueOf(state).equals(State.PAST)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStartBeforeAndEndBeforeOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now());
-            } else if (State.valueOf(state).equals(State.FUTURE)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStartAfterAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now());
-            }
-        } else if ((size == 0 && from == 0) || (size < 0 || from < 0)) {
-            log.error("Ошибка указания формата вывода запросов. " +
-                    "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
-                    "положительные числа");
-            throw new BadRequestException("Ошибка указания формата вывода запросов. " +
-                    "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
-                    "положительные числа");
-        } else {
-            int fromPage = from / size;
-            Pageable pageable = PageRequest.of(fromPage, size);
-            if (State.valueOf(state).equals(State.ALL)) {
-                bookings = bookingRepository.getBookingsByBooker_IdOrderByStartDesc(userId, pageable);
-            } else if (State.valueOf(state).equals(State.REJECTED)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStatusEqualsOrderByStartDesc(userId, Status.REJECTED, pageable);
-            } else if (State.valueOf(state).equals(State.WAITING)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStatusEqualsOrderByStartDesc(userId, Status.WAITING, pageable);
-            } else if (State.valueOf(state).equals(State.CURRENT)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStartBeforeAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now(), pageable);
-            } else if (State.valueOf(state).equals(State.PAST)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStartBeforeAndEndBeforeOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now(), pageable);
-            } else if (State.valueOf(state).equals(State.FUTURE)) {
-                bookings = bookingRepository
-                        .getBookingsByBooker_IdAndStartAfterAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now(), pageable);
-            }
-        }
-        return bookings
-                .stream()
-                .map(bookingMapper::mapFromBookingResponse)
-                .collect(Collectors.toList());
-
+        return getBookings(BookingQuery.Role.BOOKER, userId, state, from, size);
     }
 
     @Override
     public List<BookingDtoResponse> getOwnerBookings(Long userId, String state, Integer from, Integer size) {
-        List<Booking> bookings = new ArrayList<>();
+        return getBookings(BookingQuery.Role.OWNER, userId, state, from, size);
+    }
+
+    @Override
+    public CursorPage<BookingDtoResponse> getUserBookingsByCursor(Long userId, String state, String cursor,
+                                                                  Integer size) {
+        return getBookingsByCursor(BookingQuery.Role.BOOKER, userId, state, cursor, size);
+    }
+
+    @Override
+    public CursorPage<BookingDtoResponse> getOwnerBookingsByCursor(Long userId, String state, String cursor,
+                                                                   Integer size) {
+        return getBookingsByCursor(BookingQuery.Role.OWNER, userId, state, cursor, size);
+    }
+
+    @Override
+    public RowStream<BookingDtoResponse> streamOwnerBookings(Long userId, String state) {
+        checkUserAndState(userId, state); // проверки до начала ответа, чтобы ошибка ушла обычным статусом
+        BookingWindow window = BookingWindow.of(State.valueOf(state), LocalDateTime.now());
+        return action -> transactionTemplate.executeWithoutResult(status -> RowStream.drain(
+                bookingRepository.streamOwnerBookings(userId, window.getStatuses(),
+                        window.getStartFrom(), window.getStartTo(), window.getEndFrom(), window.getEndTo()),
+                entityManager, bookingMapper::mapFromBookingResponse, action));
+    }
+
+    private List<BookingDtoResponse> getBookings(BookingQuery.Role role, Long userId, String state,
+                                                 Integer from, Integer size) {
         checkUserAndState(userId, state);
-        if (from == null || size == null) {
-            if (State.valueOf(state).equals(State.ALL)) {
-                bookings = bookingRepository.getBookingsByItemOwnerIdOrderByStartDesc(userId);
-            } else if (State.valueOf(state).equals(State.REJECTED)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStatusEqualsOrderByStartDesc(userId, Status.REJECTED);
-            } else if (State.valueOf(state).equals(State.WAITING)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStatusEqualsOrderByStartDesc(userId, Status.WAITING);
-            } else if (State.valueOf(state).equals(State.CURRENT)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now());
-            } else if (State.valueOf(state).equals(State.PAST)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStartBeforeAndEndBeforeOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now());
-            } else if (State.valueOf(state).equals(State.FUTURE)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStartAfterAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now());
-            }
-        } else if ((size == 0 && from == 0) || (size < 0 || from < 0)) {
-            log.error("Ошибка указания формата вывода запросов. " +
-                    "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
-                    "положительные числа");
-            throw new BadRequestException("Ошибка указания формата вывода запросов. " +
-                    "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
-                    "положительные числа");
-        } else {
-            int fromPage = from / size;
-            Pageable pageable = PageRequest.of(fromPage, size);
-            if (State.valueOf(state).equals(State.ALL)) {
-                bookings = bookingRepository.getBookingsByItemOwnerIdOrderByStartDesc(userId, pageable);
-            } else if (State.valueOf(state).equals(State.REJECTED)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStatusEqualsOrderByStartDesc(userId, Status.REJECTED, pageable);
-            } else if (State.valueOf(state).equals(State.WAITING)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStatusEqualsOrderByStartDesc(userId, Status.WAITING, pageable);
-            } else if (State.valueOf(state).equals(State.CURRENT)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now(), pageable);
-            } else if (State.valueOf(state).equals(State.PAST)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStartBeforeAndEndBeforeOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now(), pageable);
-            } else if (State.valueOf(state).equals(State.FUTURE)) {
-                bookings = bookingRepository
-                        .getBookingsByItemOwnerIdAndStartAfterAndEndAfterOrderByStartDesc(userId,
-                                LocalDateTime.now(), LocalDateTime.now(), pageable);
+        BookingQuery query = BookingQuery.of(role, userId, State.valueOf(state), LocalDateTime.now());
+        if (from != null && size != null) {
+            if ((size == 0 && from == 0) || (size < 0 || from < 0)) {
+                log.error("Ошибка указания формата вывода запросов. " +
+                        "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
+                        "положительные числа");
+                throw new BadRequestException("Ошибка указания формата вывода запросов. " +
+                        "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
+                        "положительные числа");
             }
+            query.page(PageRequest.of(from / size, size));
         }
+        return mapBookings(query.fetch(bookingRepository));
+    }
+
+    private CursorPage<BookingDtoResponse> getBookingsByCursor(BookingQuery.Role role, Long userId, String state,
+                                                               String cursor, Integer size) {
+        checkUserAndState(userId, state);
+        int pageSize = CursorPage.checkSize(size);
+        List<Booking> bookings = BookingQuery.of(role, userId, State.valueOf(state), LocalDateTime.now())
+                .after(Cursor.decodeTimed(cursor, null))
+                .page(PageRequest.of(0, pageSize + 1))
+                .fetch(bookingRepository);
+        return CursorPage.of(bookings, pageSize, booking -> Cursor.of(booking.getStart(), booking.getId()),
+                this::mapBookings);
+    }
+
+    private List<BookingDtoResponse> mapBookings(List<Booking> bookings) {
         return bookings
                 .stream()
                 .map(bookingMapper::mapFromBookingResponse)
                 .collect(Collectors.toList());
     }
 
-    private void checkData(Long bookerId, BookingDto bookingDto) {
-        Item item = itemRepository.getItemById(bookingDto.getItemId());
+    // вещь и букер из кэшей, а если хотя бы одного там нет - одним запросом вместо отдельных чтений,
+    // результат которого заполняет кэши
+    private BookingAdmission loadAdmission(Long bookerId, Long itemId) {
+        Item item = itemCache.getIfPresent(itemId);
+        User booker = userCache.getIfPresent(bookerId);
+        if (item != null && booker != null) {
+            return new BookingAdmission(item, booker);
+        }
+        if (itemId == null || bookerId == null) {
+            return new BookingAdmission(null, null);
+        }
+        long itemCacheVersion = itemCache.version();
+        long userCacheVersion = userCache.version();
+        BookingAdmission admission = bookingRepository.getAdmission(itemId, bookerId);
+        if (admission == null) {
+            return new BookingAdmission(null, null);
+        }
+        itemCache.put(admission.getItem(), itemCacheVersion);
+        if (admission.getBooker() != null) {
+            userCache.put(admission.getBooker(), userCacheVersion);
+        }
+        return admission;
+    }
+
+    private void checkData(Long bookerId, BookingDto bookingDto, BookingAdmission admission) {
+        Item item = admission.getItem();
         if (item == null) {
             log.error("Ошибка бронирования. Предмета не существует");
             throw new NotFoundException("Ошибка бронирования. Предмета не существует");
         } else if (item.getOwnerId().equals(bookerId)) {
             log.error("Ошибка бронирования. Попытка забронировать собственную вещь");
             throw new NotFoundException("Ошибка бронирования. Попытка забронировать собственную вещь");
-        } else if (!userRepository.getAllIds().contains(bookerId)) {
+        } else if (admission.getBooker() == null) {
             log.error("Ошибка бронирования. Пользователя с айди " + bookerId + " не существует");
             throw new NotFoundException("Ошибка бронирования. Пользователя с айди " + bookerId + " не существует");
         } else if (!item.getAvailable()) {
@@ -247,7 +439,7 @@ public class BookingServiceImpl implements BookingService {
     }
 
     private void checkUserAndState(Long userId, String state) {
-        if (userRepository.getUserById(userId) == null) {
+        if (userCache.get(userId) == null) {
             log.info("Пользователь не найден");
             throw new NotFoundException("Пользователь не найден");
         }
@@ -0,0 +1,155 @@
+package ru.practicum.shareit.booking;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.dto.ForItemBookingDto;
+import ru.practicum.shareit.item.dto.ForItemsBookingDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// бронирования вещей в памяти, упорядоченные по началу и по окончанию: последнее и следующее бронирование
+// берутся с краев упорядоченных множеств без запроса в базу. Вещь загружается из базы при первом обращении
+// (в том числе после перезапуска) и дальше поддерживается addBooking. Изменения броней в обход addBooking
+// (другой экземпляр приложения, прямые правки в базе) видны не позже чем через ttl.
+// Метрики - cache.gets с cache=bookingTimeline
+@Component
+public class BookingTimeline {
+
+    // при равных датах побеждает меньший айди
+    private static final Comparator<ForItemBookingDto> BY_END = Comparator
+            .comparing(ForItemBookingDto::getEnd)
+            .thenComparing(ForItemBookingDto::getId);
+
+    private static final Comparator<ForItemBookingDto> BY_START = Comparator
+            .comparing(ForItemBookingDto::getStart)
+            .thenComparing(ForItemBookingDto::getId, Comparator.reverseOrder());
+
+    private final Cache<Long, ItemTimeline> timelines;
+
+    private final BookingRepository bookingRepository;
+
+    private final AtomicLong generation = new AtomicLong(); // растет при каждом добавлении брони
+
+    public BookingTimeline(@Value("${shareit.booking-timeline.max-items:10000}") long maxItems,
+                           @Value("${shareit.booking-timeline.ttl:10m}") Duration ttl,
+                           BookingRepository bookingRepository,
+                           MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxItems)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, timelines, "bookingTimeline");
+    }
+
+    // бронирование с наименьшей датой окончания среди завершившихся (та же выборка, что и getLastBooking)
+    public ForItemBookingDto getLastBooking(Long itemId, LocalDateTime now) {
+        return timeline(itemId).last(now);
+    }
+
+    // бронирование с наибольшей датой начала среди еще не начавшихся (та же выборка, что и getNextBooking)
+    public ForItemBookingDto getNextBooking(Long itemId, LocalDateTime now) {
+        return timeline(itemId).next(now);
+    }
+
+    // для списков вещей: все недостающие вещи загружаются одним запросом
+    public void preload(Collection<Long> itemIds) {
+        List<Long> missing = itemIds.stream()
+                .filter(id -> !timelines.asMap().containsKey(id))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        long startGeneration = generation.get();
+        Map<Long, ItemTimeline> loaded = load(missing);
+        synchronized (this) {
+            // если во время загрузки добавлялись брони, загруженное могло устареть - вещи дочитаются по одной
+            if (generation.get() == startGeneration) {
+                loaded.forEach(timelines.asMap()::putIfAbsent);
+            }
+        }
+    }
+
+    public void add(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        ForItemBookingDto entry = new ForItemBookingDto(booking.getId(), booking.getStart(), booking.getEnd(),
+                booking.getBooker().getId());
+        synchronized (this) {
+            generation.incrementAndGet();
+            // если вещь сейчас загружается, computeIfPresent дождется загрузки; повторное добавление ничего не меняет
+            timelines.asMap().computeIfPresent(itemId, (id, timeline) -> timeline.add(entry));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        timelines.invalidate(itemId); // бронь откатилась - вещь перечитается из базы
+                    }
+                }
+            });
+        }
+    }
+
+    private ItemTimeline timeline(Long itemId) {
+        return timelines.get(itemId, id -> load(List.of(id)).get(id));
+    }
+
+    private Map<Long, ItemTimeline> load(Iterable<? extends Long> itemIds) {
+        Map<Long, ItemTimeline> loaded = new HashMap<>();
+        itemIds.forEach(id -> loaded.put(id, new ItemTimeline()));
+        if (loaded.isEmpty()) {
+            return loaded;
+        }
+        for (ForItemsBookingDto row : bookingRepository.getTimelineBookings(loaded.keySet())) {
+            loaded.get(row.getItemId()).add(row.getBooking());
+        }
+        return loaded;
+    }
+
+    private static class ItemTimeline {
+
+        private final ConcurrentSkipListSet<ForItemBookingDto> byEnd = new ConcurrentSkipListSet<>(BY_END);
+
+        private final ConcurrentSkipListSet<ForItemBookingDto> byStart = new ConcurrentSkipListSet<>(BY_START);
+
+        private ItemTimeline add(ForItemBookingDto booking) {
+            byEnd.add(booking);
+            byStart.add(booking);
+            return this;
+        }
+
+        private ForItemBookingDto last(LocalDateTime now) {
+            // бронирования не удаляются, поэтому множество не опустеет между проверкой и first()
+            if (byEnd.isEmpty()) {
+                return null;
+            }
+            ForItemBookingDto first = byEnd.first();
+            return first.getEnd().isBefore(now) ? first : null;
+        }
+
+        private ForItemBookingDto next(LocalDateTime now) {
+            if (byStart.isEmpty()) {
+                return null;
+            }
+            ForItemBookingDto last = byStart.last();
+            return last.getStart().isAfter(now) ? last : null;
+        }
+    }
+}
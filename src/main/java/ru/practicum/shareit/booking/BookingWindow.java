@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import ru.practicum.shareit.pagination.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// состояние бронирования, выраженное через диапазоны начала/окончания и список статусов.
+// Вместо отдельного запроса на каждое состояние получается один запрос только с диапазонными условиями
+@Getter
+class BookingWindow {
+
+    static final LocalDateTime MIN_TIME = LocalDateTime.of(1, 1, 1, 0, 0);
+
+    static final LocalDateTime MAX_TIME = Cursor.MAX_TIME;
+
+    private List<Status> statuses = List.of(Status.values());
+
+    private LocalDateTime startFrom = MIN_TIME;
+
+    private LocalDateTime startTo = MAX_TIME;
+
+    private LocalDateTime endFrom = MIN_TIME;
+
+    private LocalDateTime endTo = MAX_TIME;
+
+    static BookingWindow of(State state, LocalDateTime now) {
+        BookingWindow window = new BookingWindow();
+        switch (state) {
+            case WAITING:
+                window.statuses = List.of(Status.WAITING);
+                break;
+            case REJECTED:
+                window.statuses = List.of(Status.REJECTED);
+                break;
+            case CURRENT:
+                window.startTo = now;
+                window.endFrom = now;
+                break;
+            case PAST:
+                window.startTo = now;
+                window.endTo = now;
+                break;
+            case FUTURE:
+                window.startFrom = now;
+                window.endFrom = now;
+                break;
+            default:
+                break;
+        }
+        return window;
+    }
+}
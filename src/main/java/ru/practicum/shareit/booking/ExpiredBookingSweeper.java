@@ -0,0 +1,76 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ForItemsBookingDto;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// ожидающие брони, чье начало уже прошло, переводятся в CANCELED. Обход по айди пачками: каждая пачка -
+// отдельный короткий update, так что строки bookings не держатся под блокировкой весь проход
+@Slf4j
+@Component
+public class ExpiredBookingSweeper {
+
+    private final int batchSize;
+
+    private final BookingRepository bookingRepository;
+
+    private final BookingIntervalIndex bookingIntervalIndex;
+
+    private final Counter canceledCounter;
+
+    private final Timer sweepTimer;
+
+    public ExpiredBookingSweeper(@Value("${shareit.booking-sweeper.batch-size:500}") int batchSize,
+                                 BookingRepository bookingRepository,
+                                 BookingIntervalIndex bookingIntervalIndex,
+                                 MeterRegistry meterRegistry) {
+        this.batchSize = batchSize;
+        this.bookingRepository = bookingRepository;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.canceledCounter = meterRegistry.counter("shareit.booking.sweeper.canceled");
+        this.sweepTimer = meterRegistry.timer("shareit.booking.sweeper.run");
+    }
+
+    @Scheduled(cron = "${shareit.booking-sweeper.cron:0 */5 * * * *}")
+    public void sweep() {
+        sweepTimer.record(() -> cancelExpired(LocalDateTime.now()));
+    }
+
+    private void cancelExpired(LocalDateTime now) {
+        int canceled = 0;
+        long afterId = 0;
+        List<ForItemsBookingDto> bookings;
+        do {
+            bookings = bookingRepository.getBookingsStartedBefore(Status.WAITING, now, afterId,
+                    PageRequest.of(0, batchSize));
+            if (bookings.isEmpty()) {
+                break;
+            }
+            afterId = bookings.get(bookings.size() - 1).getBooking().getId();
+            int updated = bookingRepository.updateStatuses(bookings.stream()
+                    .map(booking -> booking.getBooking().getId())
+                    .collect(Collectors.toList()), Status.WAITING, Status.CANCELED);
+            canceled += updated;
+            canceledCounter.increment(updated);
+            // отмененные брони больше не занимают даты - деревья этих вещей перечитаются из базы
+            Set<Long> itemIds = new HashSet<>();
+            bookings.forEach(booking -> itemIds.add(booking.getItemId()));
+            itemIds.forEach(bookingIntervalIndex::reload);
+        } while (bookings.size() == batchSize);
+        if (canceled > 0) {
+            log.info("Отменено просроченных ожидающих бронирований: {}", canceled);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ru.practicum.shareit.booking;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+// интервальное дерево: декартово дерево по (начало, айди), в каждом узле - наибольшее окончание в поддереве.
+// Интервалы полуоткрытые [start, end). Не потокобезопасно, синхронизация - на стороне BookingIntervalIndex
+class IntervalTree {
+
+    private Node root;
+
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        Node node = root;
+        while (node != null && node.maxEnd.isAfter(start)) {
+            if (node.start.isBefore(end) && node.end.isAfter(start)) {
+                return true;
+            }
+            if (node.left != null && node.left.maxEnd.isAfter(start)) {
+                // если слева ничего не пересеклось, то и справа не пересечется: там начала еще позже
+                node = node.left;
+            } else if (node.start.isBefore(end)) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    void insert(long id, LocalDateTime start, LocalDateTime end) {
+        root = insert(root, new Node(id, start, end));
+    }
+
+    boolean remove(long id, LocalDateTime start) {
+        int sizeBefore = size;
+        root = remove(root, id, start);
+        return size < sizeBefore;
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            size++;
+            return added;
+        }
+        int cmp = compare(added.start, added.id, node);
+        if (cmp == 0) {
+            return node;
+        }
+        if (cmp < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node remove(Node node, long id, LocalDateTime start) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, id, start);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, id, start);
+        } else if (node.left == null || node.right == null) {
+            size--;
+            return node.left == null ? node.right : node.left;
+        } else if (node.left.priority > node.right.priority) {
+            // опускаем удаляемый узел вниз поворотами, пока у него не останется одного потомка
+            node = rotateRight(node);
+            node.right = remove(node.right, id, start);
+        } else {
+            node = rotateLeft(node);
+            node.left = remove(node.left, id, start);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private static int compare(LocalDateTime start, long id, Node node) {
+        int cmp = start.compareTo(node.start);
+        return cmp != 0 ? cmp : Long.compare(id, node.id);
+    }
+
+    private static class Node {
+
+        private final long id;
+
+        private final LocalDateTime start;
+
+        private final LocalDateTime end;
+
+        private final int priority = ThreadLocalRandom.current().nextInt();
+
+        private LocalDateTime maxEnd;
+
+        private Node left;
+
+        private Node right;
+
+        private Node(long id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+
+        private void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd.isAfter(maxEnd)) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd.isAfter(maxEnd)) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.util.Collection;
+
+// пересечение подтвержденных броней запрещает exclusion-ограничение из schema-postgresql.sql: проверка
+// идет в самом update, без отдельного select, и работает при нескольких экземплярах приложения
+@Component
+@Profile("!ci & !test")
+@Slf4j
+public class PostgresBookingApprovalGuard implements BookingApprovalGuard {
+
+    static final String OVERLAP_CONSTRAINT = "ex_bookings_item_approved_overlap";
+
+    @Override
+    public void approve(Collection<Booking> bookings, Runnable update) {
+        try {
+            update.run();
+        } catch (DataIntegrityViolationException e) {
+            String message = e.getMostSpecificCause().getMessage();
+            if (message == null || !message.contains(OVERLAP_CONSTRAINT)) {
+                throw e;
+            }
+            log.error("Ошибка подтверждения. Вещь уже забронирована на эти даты");
+            throw new ConflictException("Ошибка подтверждения. Вещь уже забронирована на эти даты");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.util.Collection;
+
+// для профилей на H2, где нет exclusion-ограничений: пересечение проверяется запросом перед сохранением
+@Component
+@Profile({"ci", "test"})
+@Slf4j
+public class QueryBookingApprovalGuard implements BookingApprovalGuard {
+
+    private final BookingRepository bookingRepository;
+
+    public QueryBookingApprovalGuard(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Override
+    public void approve(Collection<Booking> bookings, Runnable update) {
+        for (Booking booking : bookings) {
+            if (bookingRepository.existsByItem_IdAndStatusAndIdNotAndStartBeforeAndEndAfter(booking.getItem().getId(),
+                    Status.APPROVED, booking.getId(), booking.getEnd(), booking.getStart())) {
+                log.error("Ошибка подтверждения. Вещь уже забронирована на эти даты");
+                throw new ConflictException("Ошибка подтверждения. Вещь уже забронирована на эти даты");
+            }
+        }
+        update.run();
+    }
+}
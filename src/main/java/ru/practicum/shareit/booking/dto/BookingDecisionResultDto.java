@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import ru.practicum.shareit.booking.Status;
+
+// итог решения по одной брони из пачки: новый статус либо текст ошибки
+@Builder
+@Getter
+@Setter
+@EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingDecisionResultDto {
+
+    private Long bookingId;
+
+    private Status status;
+
+    private String error;
+}
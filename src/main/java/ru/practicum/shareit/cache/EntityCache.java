@@ -0,0 +1,95 @@
+package ru.practicum.shareit.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// кэш сущностей по айди. Хранит отсоединенные копии, поэтому отдаваемые объекты - только для чтения.
+// Метрики - cache.gets/cache.evictions с cache=name
+public class EntityCache<T> {
+
+    private final Cache<Long, T> cache;
+
+    // растет перед каждым сбросом - по нему put отличает запись, прочитанную до сброса
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Function<Long, T> loader;
+
+    private final Function<T, Long> idOf;
+
+    private final UnaryOperator<T> copyOf;
+
+    public EntityCache(String name,
+                       long maxSize,
+                       Duration ttl,
+                       Function<Long, T> loader,
+                       Function<T, Long> idOf,
+                       UnaryOperator<T> copyOf,
+                       MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.idOf = idOf;
+        this.copyOf = copyOf;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    // null, если сущности нет (отсутствие не кэшируется)
+    public T get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return cache.get(id, key -> copy(loader.apply(key)));
+    }
+
+    // только из кэша, без обращения к базе: null, если записи в кэше нет
+    public T getIfPresent(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return cache.getIfPresent(id);
+    }
+
+    // снимок для put: берется до чтения из базы
+    public long version() {
+        return invalidations.get();
+    }
+
+    // кладет entity, прочитанную из базы после снимка version. Если с тех пор был сброс - запись могла
+    // устареть и не кладется. Проверка и запись атомарны относительно сброса того же ключа
+    public void put(T entity, long version) {
+        cache.asMap().compute(idOf.apply(entity),
+                (id, cached) -> invalidations.get() == version ? copy(entity) : cached);
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // повторный сброс после завершения транзакции: до коммита параллельный запрос
+            // мог успеть закэшировать старую версию
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidations.incrementAndGet();
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    private T copy(T entity) {
+        return entity == null ? null : copyOf.apply(entity);
+    }
+}
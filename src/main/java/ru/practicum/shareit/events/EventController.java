@@ -0,0 +1,24 @@
+package ru.practicum.shareit.events;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/events")
+public class EventController {
+
+    private final EventHub eventHub;
+
+    public EventController(EventHub eventHub) {
+        this.eventHub = eventHub;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return eventHub.subscribe(userId);
+    }
+}
@@ -0,0 +1,225 @@
+package ru.practicum.shareit.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.user.UserCache;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// события пользователям по SSE. Открытое соединение не занимает поток: SseEmitter отвечает асинхронно,
+// потоки send-threads нужны только на время отправки. У каждого подписчика своя очередь не длиннее
+// buffer-size - если клиент не успевает читать, отбрасываются самые старые события.
+// Метрики - shareit.events.subscribers и shareit.events.dropped
+@Slf4j
+@Component
+public class EventHub {
+
+    private static final Event PING = new Event(null, null);
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount;
+
+    private final int bufferSize;
+
+    private final long timeoutMillis;
+
+    private final ExecutorService sender;
+
+    private final UserCache userCache;
+
+    private final Counter droppedCounter;
+
+    public EventHub(@Value("${shareit.events.buffer-size:64}") int bufferSize,
+                    @Value("${shareit.events.timeout:30m}") Duration timeout,
+                    @Value("${shareit.events.send-threads:4}") int sendThreads,
+                    UserCache userCache,
+                    MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.userCache = userCache;
+        this.sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "shareit-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.subscriberCount = meterRegistry.gauge("shareit.events.subscribers", new AtomicInteger());
+        this.droppedCounter = meterRegistry.counter("shareit.events.dropped");
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        if (userCache.get(userId) == null) {
+            log.error("Пользователь не найден");
+            throw new NotFoundException("Пользователь не найден");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        // набор подписчиков меняется только внутри compute - иначе он может быть удален пустым
+        // одновременно с добавлением в него новой подписки
+        subscribers.compute(userId, (key, userSubscribers) -> {
+            Set<Subscriber> result = userSubscribers == null ? ConcurrentHashMap.newKeySet() : userSubscribers;
+            result.add(subscriber);
+            return result;
+        });
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(userId, subscriber));
+        emitter.onTimeout(() -> unsubscribe(userId, subscriber));
+        emitter.onError(e -> unsubscribe(userId, subscriber));
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return subscriberCount.get() > 0;
+    }
+
+    // внутри транзакции событие уходит только после коммита, иначе клиент прочитает по нему старые данные
+    public void publish(Long userId, EventType type, Object data) {
+        if (!subscribers.containsKey(userId)) {
+            return;
+        }
+        Event event = new Event(type, data);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(userId, event);
+                }
+            });
+        } else {
+            deliver(userId, event);
+        }
+    }
+
+    // комментарий в молчащие соединения: прокси не закрывают их по простою, а отключившиеся клиенты
+    // обнаруживаются на отправке
+    @Scheduled(fixedDelayString = "${shareit.events.heartbeat-millis:30000}")
+    public void heartbeat() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(Subscriber::ping));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        subscribers.values().forEach(userSubscribers ->
+                userSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void deliver(Long userId, Event event) {
+        Set<Subscriber> userSubscribers = subscribers.get(userId);
+        if (userSubscribers != null) {
+            userSubscribers.forEach(subscriber -> subscriber.offer(event));
+        }
+    }
+
+    private void unsubscribe(Long userId, Subscriber subscriber) {
+        boolean[] removed = {false};
+        subscribers.computeIfPresent(userId, (key, userSubscribers) -> {
+            removed[0] = userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+        if (removed[0]) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final Deque<Event> buffer = new ArrayDeque<>(); // под блокировкой подписчика
+
+        private boolean sending; // очередь уже разбирается в потоке отправки
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Event event) {
+            synchronized (this) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    droppedCounter.increment();
+                }
+                buffer.addLast(event);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            sender.execute(this::drain);
+        }
+
+        private void ping() {
+            synchronized (this) {
+                if (sending || !buffer.isEmpty()) {
+                    return;
+                }
+            }
+            offer(PING);
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = buffer.pollFirst();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event.toSse());
+                } catch (IOException | IllegalStateException e) {
+                    // клиент отключился или соединение уже закрыто - подписка снимается колбэками emitter
+                    log.debug("Событие не отправлено: {}", e.getMessage());
+                    synchronized (this) {
+                        buffer.clear();
+                        sending = false;
+                    }
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Event {
+
+        private final EventType type;
+
+        private final Object data;
+
+        private Event(EventType type, Object data) {
+            this.type = type;
+            this.data = data;
+        }
+
+        // построитель SseEmitter меняется при отправке, поэтому для каждого подписчика создается заново
+        private SseEmitter.SseEventBuilder toSse() {
+            if (type == null) {
+                return SseEmitter.event().comment("ping");
+            }
+            return SseEmitter.event().name(type.name()).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+}
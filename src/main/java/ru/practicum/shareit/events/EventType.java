@@ -0,0 +1,6 @@
+package ru.practicum.shareit.events;
+
+public enum EventType {
+    REQUEST_ITEM_ADDED, // на запрос пользователя добавили вещь
+    BOOKING_DECIDED // владелец подтвердил или отклонил бронь пользователя
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    public String getMessage() {
+        return super.getMessage();
+    }
+}
@@ -20,6 +20,12 @@ public class ErrorHandler {
         return new ErrorResponse(badRequestException.getMessage());
     }
 
+    @ExceptionHandler({ConflictException.class})
+    @ResponseStatus(value = HttpStatus.CONFLICT)
+    public ErrorResponse handleConflictException(ConflictException exception) {
+        return new ErrorResponse(exception.getMessage());
+    }
+
     @ExceptionHandler({ValidationException.class})
     @ResponseStatus(value = HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleValidationException(
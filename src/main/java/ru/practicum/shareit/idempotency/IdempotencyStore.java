@@ -0,0 +1,13 @@
+package ru.practicum.shareit.idempotency;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyStore {
+
+    String HEADER = "Idempotency-Key";
+
+    // выполняет action один раз на ключ: повтор с тем же ключом получает сохраненный результат, а пока первый
+    // запрос еще выполняется - ждет его. request - тело запроса: тот же ключ с другим телом - ошибка.
+    // Если action упал, ключ освобождается и следующий повтор выполнится заново
+    <T> T execute(String key, Object request, Supplier<T> action);
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// ключи идемпотентности в памяти процесса: не больше max-keys ключей, каждый живет ttl с момента первого
+// запроса. При нескольких экземплярах приложения повтор, попавший на другой экземпляр, выполнится заново
+@Slf4j
+@Component
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    private final Duration waitTimeout;
+
+    public LocalIdempotencyStore(@Value("${shareit.idempotency.max-keys:100000}") long maxKeys,
+                                 @Value("${shareit.idempotency.ttl:24h}") Duration ttl,
+                                 @Value("${shareit.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object request, Supplier<T> action) {
+        Entry entry = new Entry(request);
+        Entry existing = entries.asMap().putIfAbsent(key, entry);
+        if (existing == null) {
+            try {
+                T result = action.get();
+                entry.result.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                entries.asMap().remove(key, entry);
+                entry.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        if (!Objects.equals(existing.request, request)) {
+            log.error("Ключ идемпотентности " + key + " уже использован для другого запроса");
+            throw new BadRequestException("Ключ идемпотентности уже использован для другого запроса");
+        }
+        return (T) await(existing);
+    }
+
+    private Object await(Entry entry) {
+        try {
+            return entry.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // повтор получает тот же ответ, что и первый запрос
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        } catch (TimeoutException e) {
+            log.error("Запрос с этим ключом идемпотентности еще выполняется");
+            throw new ConflictException("Запрос с этим ключом идемпотентности еще выполняется");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Запрос с этим ключом идемпотентности еще выполняется");
+        }
+    }
+
+    private static class Entry {
+
+        private final Object request;
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(Object request) {
+            this.request = request;
+        }
+    }
+}
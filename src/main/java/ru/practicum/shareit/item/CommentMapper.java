@@ -8,11 +8,16 @@ import ru.practicum.shareit.item.model.Comment;
 public class CommentMapper {
 
     public CommentDto mapFromComment(Comment comment) {
+        return mapFromComment(comment, comment.getAuthor().getName());
+    }
+
+    // имя автора уже известно - не обращаемся к ленивой ссылке на пользователя
+    public CommentDto mapFromComment(Comment comment, String authorName) {
         return CommentDto.builder()
                 .id(comment.getId())
                 .text(comment.getText())
                 .created(comment.getCreated())
-                .authorName(comment.getAuthor().getName())
+                .authorName(authorName)
                 .build();
     }
 
@@ -4,8 +4,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ForItemsCommentDto;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment,Long> {
@@ -15,4 +17,11 @@ public interface CommentRepository extends JpaRepository<Comment,Long> {
             "where (cs.item.id = :id)")
     List<CommentDto> getComments(@Param("id") Long id);
 
+    @Query("select new ru.practicum.shareit.item.dto.ForItemsCommentDto(cs.item.id, cs.id, cs.text, " +
+            "cs.author.name, cs.created) " +
+            "from Comment as cs " +
+            "where cs.item.id in :ids " +
+            "order by cs.id")
+    List<ForItemsCommentDto> getCommentsByItemIds(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,34 @@
+package ru.practicum.shareit.item;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.cache.EntityCache;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.Duration;
+
+// кэш вещей по айди. Отдаваемые объекты - только для чтения:
+// для привязки к брони или комментарию вещь берется из репозитория.
+// Метрики - cache.gets/cache.evictions с cache=items
+@Component
+public class ItemCache extends EntityCache<Item> {
+
+    public ItemCache(@Value("${shareit.entity-cache.max-size:10000}") long maxSize,
+                     @Value("${shareit.entity-cache.ttl:10m}") Duration ttl,
+                     ItemRepository itemRepository,
+                     MeterRegistry meterRegistry) {
+        super("items", maxSize, ttl, itemRepository::getItemById, Item::getId, ItemCache::copyOf, meterRegistry);
+    }
+
+    private static Item copyOf(Item item) {
+        return Item.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .ownerId(item.getOwnerId())
+                .available(item.getAvailable())
+                .requestId(item.getRequestId())
+                .build();
+    }
+}
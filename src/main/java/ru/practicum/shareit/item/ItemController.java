@@ -1,11 +1,17 @@
 package ru.practicum.shareit.item;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
+import ru.practicum.shareit.idempotency.IdempotencyStore;
 import ru.practicum.shareit.request.model.GetRequestInfo;
+import ru.practicum.shareit.streaming.NdjsonResponse;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -17,14 +23,25 @@ public class ItemController {
 
     private final ItemService itemService;
 
-    public ItemController(ItemService itemService) {
+    private final ObjectMapper objectMapper;
+
+    private final IdempotencyStore idempotencyStore;
+
+    public ItemController(ItemService itemService, ObjectMapper objectMapper, IdempotencyStore idempotencyStore) {
         this.itemService = itemService;
+        this.objectMapper = objectMapper;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping
-    public ItemDto addItem(@RequestHeader("X-Sharer-User-Id") Long ownerId, @Valid @RequestBody ItemDto item) {
+    public ItemDto addItem(@RequestHeader("X-Sharer-User-Id") Long ownerId, @Valid @RequestBody ItemDto item,
+                           @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("Принят запрос на добавление предмета от пользователя с айди: {}", ownerId);
-        return itemService.addItem(ownerId, item);
+        if (idempotencyKey == null) {
+            return itemService.addItem(ownerId, item);
+        }
+        return idempotencyStore.execute("items:" + ownerId + ":" + idempotencyKey, item,
+                () -> itemService.addItem(ownerId, item));
     }
 
     @GetMapping("/{itemId}")
@@ -41,6 +58,21 @@ public class ItemController {
         return itemService.findAllUserItems(GetRequestInfo.of(ownerId,from,size));
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserItems(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        log.info("Принят запрос на потоковую выгрузку вещей пользователя с айди: {}", ownerId);
+        return NdjsonResponse.of(objectMapper, itemService.streamUserItems(ownerId));
+    }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<List<ItemDtoWithBooking>> findAllUserItemsByCursor(
+            @RequestHeader("X-Sharer-User-Id") Long ownerId,
+            @RequestParam String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("Принят запрос на просмотр вещей пользователя с айди {} по курсору", ownerId);
+        return itemService.findAllUserItemsByCursor(ownerId, cursor, size).toResponseEntity();
+    }
+
     @PatchMapping("/{itemId}")
     public ItemDto updateItem(@RequestHeader("X-Sharer-User-Id") Long ownerId,
                               @RequestBody ItemDto itemDto, @PathVariable Long itemId) {
@@ -51,8 +83,12 @@ public class ItemController {
     @GetMapping("/search")
     public List<ItemDto> findItemsByText(@RequestParam String text,
                                          @RequestParam(required = false) Integer from,
-                                         @RequestParam(required = false) Integer size) {
+                                         @RequestParam(required = false) Integer size,
+                                         @RequestParam(defaultValue = "false") Boolean ranked) {
         log.info("Принят запрос на поиск предмета");
+        if (ranked) {
+            return itemService.findItemsByTextRanked(text, from, size);
+        }
         return itemService.findItemsByText(text,from,size);
     }
 
@@ -2,8 +2,11 @@ package ru.practicum.shareit.item;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -14,6 +17,8 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
 
     List<Item> getItemsByOwnerId(Long ownerId, Pageable pageable);
 
+    List<Item> findByOwnerIdAndIdGreaterThanOrderByIdAsc(Long ownerId, Long id, Pageable pageable);
+
     List<Item> findItemsByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableEquals(
             String name, String description, Boolean available);
 
@@ -22,4 +27,30 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
 
 
     List<Item> getItemsByRequestId(Long requestId);
+
+    List<Item> getItemsByRequestIdIn(Collection<Long> requestIds);
+
+    long countByAvailableTrue();
+
+    List<Item> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query(value = "select i.id from items as i " +
+            "where i.available = true " +
+            "and (lower(i.name) like :pattern escape '!' or lower(i.description) like :pattern escape '!') " +
+            "order by i.id", nativeQuery = true)
+    List<Long> findAvailableIdsByPattern(@Param("pattern") String pattern);
+
+    @Query(value = "select count(*) from items as i " +
+            "where i.available = true " +
+            "and (lower(i.name) like :pattern escape '!' or lower(i.description) like :pattern escape '!')",
+            nativeQuery = true)
+    long countAvailableByPattern(@Param("pattern") String pattern);
+
+    @Query(value = "select i.id from items as i " +
+            "where i.available = true and i.id > :afterId " +
+            "and (lower(i.name) like :pattern escape '!' or lower(i.description) like :pattern escape '!') " +
+            "order by i.id limit :limit", nativeQuery = true)
+    List<Long> findAvailableIdsByPatternAfter(@Param("pattern") String pattern,
+                                              @Param("afterId") long afterId,
+                                              @Param("limit") int limit);
 }
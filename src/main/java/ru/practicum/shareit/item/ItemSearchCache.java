@@ -0,0 +1,94 @@
+package ru.practicum.shareit.item;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// кэш результатов поиска вещей. Запись сбрасывается только тогда, когда добавленная или измененная вещь
+// подходит (или подходила до изменения) под текст запроса. Ранжированные результаты зависят от частот слов
+// по всем вещам, поэтому сбрасываются при любом изменении названия, описания или доступности.
+// Метрики - cache.gets/cache.evictions с cache=itemSearch
+@Component
+public class ItemSearchCache {
+
+    private final Cache<SearchKey, List<ItemDto>> cache;
+
+    private final AtomicLong generation = new AtomicLong(); // растет при каждой инвалидации
+
+    public ItemSearchCache(@Value("${shareit.search.cache.max-size:10000}") long maxSize,
+                           @Value("${shareit.search.cache.ttl:5m}") Duration ttl,
+                           MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "itemSearch");
+    }
+
+    public List<ItemDto> get(String text, Integer from, Integer size, boolean ranked, Supplier<List<ItemDto>> loader) {
+        SearchKey key = new SearchKey(text.toLowerCase(), from, size, ranked);
+        List<ItemDto> items = cache.getIfPresent(key);
+        if (items != null) {
+            return items;
+        }
+        long startGeneration = generation.get();
+        List<ItemDto> loaded = List.copyOf(loader.get());
+        // если во время поиска менялись вещи, результат мог устареть - отдаем его, но не кэшируем.
+        // Проверка и запись атомарны относительно сброса того же ключа, как в EntityCache.put
+        cache.asMap().compute(key, (k, cached) -> generation.get() == startGeneration ? loaded : cached);
+        if (generation.get() != startGeneration) {
+            // сброс мог пройти по ключам раньше, чем появилась запись, - убираем ее сами
+            cache.asMap().remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    // before - вещь до изменения (null для новой), after - после
+    public void invalidate(ItemDto before, ItemDto after) {
+        if (before != null && after != null
+                && Objects.equals(before.getName(), after.getName())
+                && Objects.equals(before.getDescription(), after.getDescription())
+                && Objects.equals(before.getAvailable(), after.getAvailable())) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.ranked || matches(before, key.text) || matches(after, key.text));
+    }
+
+    private static boolean matches(ItemDto item, String lowerText) {
+        return item != null && Boolean.TRUE.equals(item.getAvailable())
+                && (item.getName().toLowerCase().contains(lowerText)
+                || item.getDescription().toLowerCase().contains(lowerText));
+    }
+
+    @EqualsAndHashCode
+    private static class SearchKey {
+
+        private final String text;
+
+        private final Integer from;
+
+        private final Integer size;
+
+        private final boolean ranked;
+
+        private SearchKey(String text, Integer from, Integer size, boolean ranked) {
+            this.text = text;
+            this.from = from;
+            this.size = size;
+            this.ranked = ranked;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item;
+
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+public interface ItemSearchIndex {
+
+    void index(Item item);
+
+    // отсортированные по айди вещи-кандидаты, в названии или описании которых может быть подстрока text.
+    // Кандидаты проверяются на точное совпадение при загрузке из базы
+    List<Long> search(String text);
+
+    // число кандидатов для text без построения списка айди - для idf при ранжировании
+    long count(String text);
+
+    // не больше limit кандидатов с айди больше afterId по возрастанию: весь результат читается пачками
+    List<Long> searchAfter(String text, long afterId, int limit);
+}
@@ -0,0 +1,117 @@
+package ru.practicum.shareit.item;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.*;
+
+// ранжирование результатов поиска по tf-idf: совпадения в названии весят больше, чем в описании.
+// В памяти держится только куча из лучших capacity вещей, а не весь результат поиска
+@Component
+public class ItemSearchRanker {
+
+    private static final double NAME_BOOST = 2.0;
+
+    private final ItemRepository itemRepository;
+
+    private final ItemSearchIndex itemSearchIndex;
+
+    public ItemSearchRanker(ItemRepository itemRepository, ItemSearchIndex itemSearchIndex) {
+        this.itemRepository = itemRepository;
+        this.itemSearchIndex = itemSearchIndex;
+    }
+
+    public Ranking startRanking(String text, int capacity) {
+        List<String> terms = tokenize(text);
+        long itemsCount = itemRepository.countByAvailableTrue();
+        Map<String, Double> idf = new HashMap<>();
+        for (String term : terms) {
+            long documentFrequency = itemSearchIndex.count(term);
+            idf.put(term, Math.log((itemsCount + 1.0) / (documentFrequency + 1.0)) + 1.0);
+        }
+        return new Ranking(idf, capacity);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public static class Ranking {
+
+        // в голове кучи - худшая из отобранных вещей: меньший вес, при равенстве - больший айди
+        private static final Comparator<ScoredItem> WORST_FIRST = Comparator
+                .comparingDouble((ScoredItem scoredItem) -> scoredItem.score)
+                .thenComparing(scoredItem -> scoredItem.item.getId(), Comparator.reverseOrder());
+
+        private final Map<String, Double> idf;
+
+        private final int capacity;
+
+        private final PriorityQueue<ScoredItem> heap = new PriorityQueue<>(WORST_FIRST);
+
+        private Ranking(Map<String, Double> idf, int capacity) {
+            this.idf = idf;
+            this.capacity = capacity;
+        }
+
+        public void offer(Item item) {
+            if (capacity <= 0) {
+                return;
+            }
+            ScoredItem scoredItem = new ScoredItem(item, score(item));
+            if (heap.size() < capacity) {
+                heap.offer(scoredItem);
+            } else if (WORST_FIRST.compare(scoredItem, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(scoredItem);
+            }
+        }
+
+        // вещи от самой релевантной к наименее релевантной
+        public List<Item> result() {
+            List<ScoredItem> scoredItems = new ArrayList<>(heap);
+            scoredItems.sort(WORST_FIRST.reversed());
+            List<Item> items = new ArrayList<>(scoredItems.size());
+            scoredItems.forEach(scoredItem -> items.add(scoredItem.item));
+            return items;
+        }
+
+        private double score(Item item) {
+            String name = item.getName().toLowerCase();
+            String description = item.getDescription().toLowerCase();
+            double score = 0;
+            for (Map.Entry<String, Double> term : idf.entrySet()) {
+                double termFrequency = NAME_BOOST * frequency(name, term.getKey())
+                        + frequency(description, term.getKey());
+                score += termFrequency * term.getValue();
+            }
+            return score;
+        }
+
+        private static double frequency(String text, String term) {
+            int count = 0;
+            for (int i = text.indexOf(term); i >= 0; i = text.indexOf(term, i + term.length())) {
+                count++;
+            }
+            return count == 0 ? 0 : 1 + Math.log(count);
+        }
+    }
+
+    private static class ScoredItem {
+
+        private final Item item;
+
+        private final double score;
+
+        private ScoredItem(Item item, double score) {
+            this.item = item;
+            this.score = score;
+        }
+    }
+}
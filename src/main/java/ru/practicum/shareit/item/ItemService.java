@@ -3,6 +3,8 @@ package ru.practicum.shareit.item;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.streaming.RowStream;
 import ru.practicum.shareit.request.model.GetRequestInfo;
 
 import java.util.List;
@@ -15,10 +17,16 @@ public interface ItemService {
 
     List<ItemDtoWithBooking> findAllUserItems(GetRequestInfo requestInfo);
 
+    CursorPage<ItemDtoWithBooking> findAllUserItemsByCursor(Long ownerId, String cursor, Integer size);
+
+    RowStream<ItemDtoWithBooking> streamUserItems(Long ownerId);
+
     ItemDto updateItem(Long ownerId, Long itemId, ItemDto itemDto);
 
     List<ItemDto> findItemsByText(String text, Integer from, Integer size);
 
+    List<ItemDto> findItemsByTextRanked(String text, Integer from, Integer size);
+
     CommentDto addComment(Long userId, CommentDto commentDto, Long itemId);
 
 }
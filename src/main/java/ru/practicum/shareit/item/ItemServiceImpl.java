@@ -3,33 +3,49 @@ package ru.practicum.shareit.item;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingTimeline;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.events.EventHub;
+import ru.practicum.shareit.events.EventType;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
-import ru.practicum.shareit.item.dto.ForItemBookingDto;
+import ru.practicum.shareit.item.dto.ForItemsCommentDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.request.RequestMatcher;
+import ru.practicum.shareit.request.RequestRepository;
 import ru.practicum.shareit.request.model.GetRequestInfo;
+import ru.practicum.shareit.streaming.RowStream;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.user.UserExistenceFilter;
 import ru.practicum.shareit.user.UserRepository;
 
-
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class ItemServiceImpl implements ItemService {
 
+    private static final int SEARCH_LOAD_BATCH_SIZE = 100;
+
     private final ItemMapper itemMapper;
 
     private final CommentMapper commentMapper;
@@ -40,37 +56,94 @@ public class ItemServiceImpl implements ItemService {
 
     private final BookingRepository bookingRepository;
 
+    private final ItemSearchIndex itemSearchIndex;
+
+    private final ItemSearchRanker itemSearchRanker;
+
+    private final ItemSearchCache itemSearchCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final UserCache userCache;
+
+    private final ItemCache itemCache;
+
+    private final UserExistenceFilter userExistenceFilter;
+
+    private final BookingTimeline bookingTimeline;
+
+    private final RequestMatcher requestMatcher;
+
+    private final RequestRepository requestRepository;
+
+    private final EventHub eventHub;
+
     public ItemServiceImpl(ItemMapper itemMapper,
                            CommentMapper commentMapper, ItemRepository itemRepository,
                            UserRepository userRepository,
-                           CommentRepository commentRepository, BookingRepository bookingRepository) {
+                           CommentRepository commentRepository, BookingRepository bookingRepository,
+                           ItemSearchIndex itemSearchIndex, ItemSearchRanker itemSearchRanker,
+                           ItemSearchCache itemSearchCache, TransactionTemplate transactionTemplate,
+                           EntityManager entityManager, UserCache userCache, ItemCache itemCache,
+                           UserExistenceFilter userExistenceFilter, BookingTimeline bookingTimeline,
+                           RequestMatcher requestMatcher, RequestRepository requestRepository,
+                           EventHub eventHub) {
         this.itemMapper = itemMapper;
         this.commentMapper = commentMapper;
         this.itemRepository = itemRepository;
         this.userRepository = userRepository;
         this.commentRepository = commentRepository;
         this.bookingRepository = bookingRepository;
+        this.itemSearchIndex = itemSearchIndex;
+        this.itemSearchRanker = itemSearchRanker;
+        this.itemSearchCache = itemSearchCache;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.userCache = userCache;
+        this.itemCache = itemCache;
+        this.userExistenceFilter = userExistenceFilter;
+        this.bookingTimeline = bookingTimeline;
+        this.requestMatcher = requestMatcher;
+        this.requestRepository = requestRepository;
+        this.eventHub = eventHub;
     }
 
     public ItemDto addItem(Long ownerId, ItemDto itemDto) {
-        if (!userRepository.getAllIds().contains(ownerId)) {
+        if (!userExistenceFilter.exists(ownerId)) {
             log.error("Пользователя с айди " + ownerId + " не существует");
             throw new NotFoundException("Пользователя с айди " + ownerId + " не существует");
         }
         Item item = itemMapper.mapFromItemDto(itemDto);
         item.setOwnerId(ownerId);
         Item inMemoryItem = itemRepository.save(item);
+        ItemDto addedItem = itemMapper.mapFromItem(inMemoryItem);
+        itemSearchIndex.index(inMemoryItem);
+        itemSearchCache.invalidate(null, addedItem);
+        List<Long> matchingRequests = requestMatcher.index(inMemoryItem);
         log.info("Предмет добавлен в хранилище. Присвоено айди: {}", inMemoryItem.getId());
-        return itemMapper.mapFromItem(inMemoryItem);
+        if (!matchingRequests.isEmpty()) {
+            log.info("Вещь с айди {} подходит к открытым запросам: {}", inMemoryItem.getId(), matchingRequests);
+        }
+        // автор запроса узнает об ответе из потока /events вместо опроса GET /requests/{id}.
+        // Без открытых подписок автора запроса не ищем
+        if (inMemoryItem.getRequestId() != null && eventHub.hasSubscribers()) {
+            Long requesterId = requestRepository.getRequesterId(inMemoryItem.getRequestId());
+            if (requesterId != null) {
+                eventHub.publish(requesterId, EventType.REQUEST_ITEM_ADDED, addedItem);
+            }
+        }
+        return addedItem;
     }
 
     public ItemDtoWithBooking findItemById(Long userId, Long itemId) {
-        User user = userRepository.getUserById(userId);
+        User user = userCache.get(userId);
         if (user == null) {
             log.error("Пользователь не найден");
             throw new NotFoundException("Пользователь не найден");
         }
-        Item item = itemRepository.getItemById(itemId);
+        Item item = itemCache.get(itemId);
         if (item == null) {
             log.error("Вещь не найдена");
             throw new NotFoundException("Вещь не найдена");
@@ -78,8 +151,9 @@ public class ItemServiceImpl implements ItemService {
         ItemDtoWithBooking itemDtoWithBooking = itemMapper.mapFromItemForItemWithBooking(item);
         settingComments(itemDtoWithBooking, itemId);
         if (userId.equals(item.getOwnerId())) {
-            settingLastBookingForItem(itemDtoWithBooking, itemId);
-            settingNextBookingForItem(itemDtoWithBooking, itemId);
+            LocalDateTime now = LocalDateTime.now();
+            itemDtoWithBooking.setLastBooking(bookingTimeline.getLastBooking(itemId, now));
+            itemDtoWithBooking.setNextBooking(bookingTimeline.getNextBooking(itemId, now));
         }
         return itemDtoWithBooking;
     }
@@ -108,11 +182,7 @@ public class ItemServiceImpl implements ItemService {
                 .map(itemMapper::mapFromItemForItemWithBooking)
                 .collect(Collectors.toList());
 
-        itemsDto.forEach(item -> {
-            settingLastBookingForItem(item, item.getId()); //заполняем поле последнего бронирования
-            settingNextBookingForItem(item, item.getId()); //заполняем поле следующего бронирования
-            settingComments(item, item.getId()); // заполняем комментарии
-        });
+        settingBookingsAndComments(itemsDto); // заполняем бронирования и комментарии сразу для всех вещей
 
         /*
         itemsDto.sort((o1, o2) -> { // сортировка (в тестах для постмана нужно,
@@ -144,16 +214,57 @@ public class ItemServiceImpl implements ItemService {
         return itemsDto;
     }
 
+    @Override
+    public RowStream<ItemDtoWithBooking> streamUserItems(Long ownerId) {
+        // вещи читаются порциями по айди, бронирования и комментарии подгружаются на каждую порцию целиком
+        return action -> transactionTemplate.executeWithoutResult(status -> {
+            Long lastId = 0L;
+            List<Item> items;
+            do {
+                items = itemRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(ownerId, lastId,
+                        PageRequest.of(0, RowStream.CHUNK_SIZE));
+                if (items.isEmpty()) {
+                    break;
+                }
+                lastId = items.get(items.size() - 1).getId();
+                List<ItemDtoWithBooking> itemsDto = items
+                        .stream()
+                        .map(itemMapper::mapFromItemForItemWithBooking)
+                        .collect(Collectors.toList());
+                settingBookingsAndComments(itemsDto);
+                entityManager.clear();
+                itemsDto.forEach(action);
+            } while (items.size() == RowStream.CHUNK_SIZE);
+        });
+    }
+
+    @Override
+    public CursorPage<ItemDtoWithBooking> findAllUserItemsByCursor(Long ownerId, String cursor, Integer size) {
+        int pageSize = CursorPage.checkSize(size);
+        Cursor after = Cursor.decode(cursor, Cursor.of(0L));
+        List<Item> items = itemRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(ownerId, after.getId(),
+                PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(items, pageSize, item -> Cursor.of(item.getId()), pageItems -> {
+            List<ItemDtoWithBooking> itemsDto = pageItems
+                    .stream()
+                    .map(itemMapper::mapFromItemForItemWithBooking)
+                    .collect(Collectors.toList());
+            settingBookingsAndComments(itemsDto);
+            return itemsDto;
+        });
+    }
+
     public ItemDto updateItem(Long ownerId, Long itemId, ItemDto itemDto) {
-        if (!userRepository.getAllIds().contains(ownerId)) {
+        if (!userExistenceFilter.exists(ownerId)) {
             log.error("Пользователя с айди " + ownerId + " не существует");
             throw new NotFoundException("Пользователя с айди " + ownerId + " не существует");
         }
-        Item inMemoryItem = itemRepository.getItemById(itemId);
+        Item inMemoryItem = itemCache.get(itemId);
         if (!inMemoryItem.getOwnerId().equals(ownerId)) {
             log.error("Ошибка редактирования предмета. Данный пользователь не является владельцем");
             throw new NotFoundException("Ошибка редактирования предмета. Данный пользователь не является владельцем");
         }
+        ItemDto previousItem = itemMapper.mapFromItem(inMemoryItem);
         Item item = Item.builder()
                 .id(inMemoryItem.getId())
                 .name(inMemoryItem.getName())
@@ -175,8 +286,13 @@ public class ItemServiceImpl implements ItemService {
         }
 
         itemRepository.save(item);
+        itemCache.invalidate(itemId);
+        ItemDto updatedItem = itemMapper.mapFromItem(item);
+        itemSearchIndex.index(item);
+        itemSearchCache.invalidate(previousItem, updatedItem);
+        requestMatcher.index(item);
         log.info("Обновление предмета");
-        return itemMapper.mapFromItem(item);
+        return updatedItem;
     }
 
 
@@ -187,44 +303,78 @@ public class ItemServiceImpl implements ItemService {
             items = List.of();
         } else {
             log.info("Возвращение списка вещей");
-            if (from == null || size == null) {
-                items = itemRepository
-                        .findItemsByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableEquals(text,
-                                text, true)
-                        .stream()
-                        .map(itemMapper::mapFromItem)
-                        .collect(Collectors.toList());
-            } else if ((size == 0 && from == 0) || (size < 0 || from < 0)) {
+            if (from != null && size != null && ((size == 0 && from == 0) || (size < 0 || from < 0))) {
                 log.error("Ошибка указания формата вывода запросов. " +
                         "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
                         "положительные числа");
                 throw new BadRequestException("Ошибка указания формата вывода запросов. " +
                         "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
                         "положительные числа");
-            } else {
-                int fromPage = from / size;
-                Pageable pageable = PageRequest.of(fromPage, size);
-                items = itemRepository
-                        .findItemsByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableEquals(text,
-                                text,
-                                        true, pageable)
-                        .stream()
-                        .map(itemMapper::mapFromItem)
-                        .collect(Collectors.toList());
             }
+            items = itemSearchCache.get(text, from, size, false, () -> {
+                if (from == null || size == null) {
+                    return loadFoundItems(text, 0, Integer.MAX_VALUE);
+                }
+                return loadFoundItems(text, (from / size) * size, size);
+            });
         }
         return items;
     }
 
+    @Override
+    public List<ItemDto> findItemsByTextRanked(String text, Integer from, Integer size) {
+        if (text.isEmpty()) {
+            log.info("Возвращение пустого списка вещей");
+            return List.of();
+        }
+        int offset = 0;
+        int capacity = Integer.MAX_VALUE;
+        if (from != null && size != null) {
+            if (size <= 0 || from < 0) { // при size == 0 нельзя вычислить номер страницы
+                log.error("Ошибка указания формата вывода запросов. " +
+                        "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
+                        "положительные числа");
+                throw new BadRequestException("Ошибка указания формата вывода запросов. " +
+                        "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
+                        "положительные числа");
+            }
+            offset = (from / size) * size;
+            capacity = (int) Math.min(Integer.MAX_VALUE, (long) offset + size); // from около MAX_VALUE
+        }
+        log.info("Возвращение списка вещей, отсортированного по релевантности");
+        int rankingOffset = offset;
+        int rankingCapacity = capacity;
+        return itemSearchCache.get(text, from, size, true, () -> {
+            ItemSearchRanker.Ranking ranking = itemSearchRanker.startRanking(text, rankingCapacity);
+            // кандидаты читаются пачками по айди и сразу уходят в кучу - полный список найденного не строится
+            long afterId = 0;
+            List<Long> foundIds;
+            do {
+                foundIds = itemSearchIndex.searchAfter(text, afterId, SEARCH_LOAD_BATCH_SIZE);
+                forEachFoundItem(foundIds, text, item -> {
+                    ranking.offer(item);
+                    return true;
+                });
+                if (!foundIds.isEmpty()) {
+                    afterId = foundIds.get(foundIds.size() - 1);
+                }
+            } while (foundIds.size() == SEARCH_LOAD_BATCH_SIZE);
+            return ranking.result()
+                    .stream()
+                    .skip(rankingOffset)
+                    .map(itemMapper::mapFromItem)
+                    .collect(Collectors.toList());
+        });
+    }
+
     @Override
     public CommentDto addComment(Long userId, CommentDto commentDto, Long itemId) {
-        User user = userRepository.getUserById(userId);
+        User user = userCache.get(userId);
         if (user == null) {
             log.error("Пользователь не найден");
             throw new NotFoundException("Пользователь не найден");
         }
-        Item item = itemRepository.getItemById(itemId);
-        if (item == null) {
+        if (itemCache.get(itemId) == null) {
             log.error("Предмет не найден");
             throw new NotFoundException("Предмет не найден");
         }
@@ -238,10 +388,10 @@ public class ItemServiceImpl implements ItemService {
         if (bookingCheck.size() > 0) {
             Comment comment = commentMapper.mapFromCommentDto(commentDto);
             comment.setCreated(LocalDateTime.now());
-            comment.setAuthor(user);
-            comment.setItem(item);
+            comment.setAuthor(userRepository.getReferenceById(userId));
+            comment.setItem(itemRepository.getReferenceById(itemId));
             commentRepository.save(comment);
-            return commentMapper.mapFromComment(comment);
+            return commentMapper.mapFromComment(comment, user.getName());
         } else {
             log.error("Ошибка запроса. Данный пользователь еще не производил полное бронирование хотя бы раз");
             throw new
@@ -250,28 +400,76 @@ public class ItemServiceImpl implements ItemService {
         }
     }
 
-    private void settingLastBookingForItem(ItemDtoWithBooking itemDtoWithBooking, Long itemId) {
-        Pageable pageableLastBooking = PageRequest.of(0, 1, Sort.by(("end"))); //пишем ограничение для того, чтобы получить последнее броинрование
-        List<ForItemBookingDto> bookings = bookingRepository.getLastBooking(itemId, pageableLastBooking);
-        if (bookings.size() == 0) { //проверка на отсутсвие последнего броинрования
-            itemDtoWithBooking.setLastBooking(null);
-        } else {
-            itemDtoWithBooking.setLastBooking(bookings.get(0));
-        }
+    private void settingComments(ItemDtoWithBooking itemDtoWithBooking, Long itemId) {
+        List<CommentDto> comments = commentRepository.getComments(itemId);
+        itemDtoWithBooking.setComments(comments);
     }
 
-    private void settingNextBookingForItem(ItemDtoWithBooking itemDtoWithBooking, Long itemId) {
-        Pageable pageableNextBooking = PageRequest.of(0, 1, Sort.by(Sort.Order.desc("start"))); //пишем ограничение для того, чтобы получить следующее броинрование
-        List<ForItemBookingDto> booking = bookingRepository.getNextBooking(itemId, pageableNextBooking);
-        if (booking.size() == 0) { //проверка на отсутсвие следующего броинрования
-            itemDtoWithBooking.setNextBooking(null);
-        } else {
-            itemDtoWithBooking.setNextBooking(booking.get(0));
+    // кандидаты читаются из индекса пачками по айди и не дальше, чем нужно для offset + limit найденных вещей:
+    // из базы достаем только их, а не все совпадения
+    private List<ItemDto> loadFoundItems(String text, int offset, int limit) {
+        List<ItemDto> items = new ArrayList<>();
+        int[] skipped = {0};
+        long afterId = 0;
+        int batchSize;
+        List<Long> foundIds;
+        do {
+            batchSize = (int) Math.min(SEARCH_LOAD_BATCH_SIZE, (long) offset - skipped[0] + limit - items.size());
+            foundIds = itemSearchIndex.searchAfter(text, afterId, batchSize);
+            forEachFoundItem(foundIds, text, item -> {
+                if (skipped[0] < offset) {
+                    skipped[0]++;
+                } else {
+                    items.add(itemMapper.mapFromItem(item));
+                }
+                return items.size() < limit;
+            });
+            if (!foundIds.isEmpty()) {
+                afterId = foundIds.get(foundIds.size() - 1);
+            }
+        } while (items.size() < limit && foundIds.size() == batchSize);
+        return items;
+    }
+
+    // обходит найденные вещи в порядке айди, пока consumer не вернет false
+    private void forEachFoundItem(List<Long> foundIds, String text, Predicate<Item> consumer) {
+        String lowerText = text.toLowerCase();
+        for (int i = 0; i < foundIds.size(); i += SEARCH_LOAD_BATCH_SIZE) {
+            List<Item> batch = new ArrayList<>(itemRepository
+                    .findAllById(foundIds.subList(i, Math.min(i + SEARCH_LOAD_BATCH_SIZE, foundIds.size()))));
+            batch.sort(Comparator.comparing(Item::getId));
+            for (Item item : batch) {
+                // индекс отдает кандидатов, совпадение всей строки запроса проверяем здесь
+                if (!Boolean.TRUE.equals(item.getAvailable())
+                        || !(item.getName().toLowerCase().contains(lowerText)
+                        || item.getDescription().toLowerCase().contains(lowerText))) {
+                    continue;
+                }
+                if (!consumer.test(item)) {
+                    return;
+                }
+            }
         }
     }
 
-    private void settingComments(ItemDtoWithBooking itemDtoWithBooking, Long itemId) {
-        List<CommentDto> comments = commentRepository.getComments(itemId);
-        itemDtoWithBooking.setComments(comments);
+    private void settingBookingsAndComments(List<ItemDtoWithBooking> itemsDto) {
+        if (itemsDto.isEmpty()) {
+            return;
+        }
+        List<Long> itemIds = itemsDto.stream()
+                .map(ItemDtoWithBooking::getId)
+                .collect(Collectors.toList());
+        // бронирования берутся из BookingTimeline (недостающие вещи - одним запросом), комментарии - одним запросом
+        bookingTimeline.preload(itemIds);
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<CommentDto>> comments = commentRepository.getCommentsByItemIds(itemIds)
+                .stream()
+                .collect(Collectors.groupingBy(ForItemsCommentDto::getItemId,
+                        Collectors.mapping(ForItemsCommentDto::getComment, Collectors.toList())));
+        itemsDto.forEach(item -> {
+            item.setLastBooking(bookingTimeline.getLastBooking(item.getId(), now));
+            item.setNextBooking(bookingTimeline.getNextBooking(item.getId(), now));
+            item.setComments(comments.getOrDefault(item.getId(), new ArrayList<>()));
+        });
     }
 }
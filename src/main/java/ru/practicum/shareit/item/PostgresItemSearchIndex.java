@@ -0,0 +1,47 @@
+package ru.practicum.shareit.item;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+// поиск на стороне PostgreSQL: like по lower(name)/lower(description) обслуживается GIN-индексами pg_trgm
+// из schema-postgresql.sql, поэтому в памяти ничего держать не нужно
+@Component
+@Profile("!ci & !test")
+public class PostgresItemSearchIndex implements ItemSearchIndex {
+
+    private final ItemRepository itemRepository;
+
+    public PostgresItemSearchIndex(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @Override
+    public void index(Item item) {
+        // индекс поддерживает сама база
+    }
+
+    @Override
+    public List<Long> search(String text) {
+        return itemRepository.findAvailableIdsByPattern(pattern(text));
+    }
+
+    @Override
+    public long count(String text) {
+        return itemRepository.countAvailableByPattern(pattern(text));
+    }
+
+    @Override
+    public List<Long> searchAfter(String text, long afterId, int limit) {
+        return itemRepository.findAvailableIdsByPatternAfter(pattern(text), afterId, limit);
+    }
+
+    private static String pattern(String text) {
+        return "%" + text.toLowerCase()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+    }
+}
@@ -0,0 +1,287 @@
+package ru.practicum.shareit.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// индекс триграмм названия и описания доступных вещей для профилей на H2, где нет pg_trgm.
+// Строится лениво при первом поиске, дальше поддерживается из addItem/updateItem с учетом коммита и отката
+@Component
+@Profile({"ci", "test"})
+@Slf4j
+public class TrigramItemSearchIndex implements ItemSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+
+    private final Map<String, Posting> postings = new ConcurrentHashMap<>(); // триграмма -> айди вещей
+
+    private final Map<Long, Set<String>> itemGrams = new ConcurrentHashMap<>(); // айди вещи -> ее триграммы
+
+    private volatile boolean built;
+
+    public TrigramItemSearchIndex(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    // внутри транзакции вещь до ее завершения ищется и по старым, и по новым триграммам: лишний кандидат
+    // отсеется проверкой при загрузке из базы, а пропущенный потерялся бы. После коммита остаются новые
+    // триграммы, после отката - прежние
+    @Override
+    public synchronized void index(Item item) {
+        if (!built) { // иначе прежние триграммы вещи для отката неизвестны
+            build();
+        }
+        Set<String> grams = gramsOf(item);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(item.getId(), grams);
+            return;
+        }
+        PendingChanges pending = pendingChanges();
+        Set<String> current = itemGrams.getOrDefault(item.getId(), Set.of());
+        pending.original.putIfAbsent(item.getId(), current);
+        pending.changed.put(item.getId(), grams);
+        Set<String> union = new HashSet<>(current);
+        union.addAll(grams);
+        put(item.getId(), union);
+    }
+
+    @Override
+    public List<Long> search(String text) {
+        return searchAfter(text, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long count(String text) {
+        List<Posting> lists = candidateLists(text);
+        if (lists.isEmpty()) {
+            return 0;
+        }
+        long count = 0;
+        if (isShort(text)) { // объединение: айди считается в первом из списков, где он встретился
+            for (int i = 0; i < lists.size(); i++) {
+                for (Long id : lists.get(i).ids) {
+                    if (!containedInAny(lists.subList(0, i), id)) {
+                        count++;
+                    }
+                }
+            }
+        } else { // пересечение: обходим самый короткий список и проверяем остальные
+            for (Long id : lists.get(0).ids) {
+                if (containedInAll(lists, id)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Long> searchAfter(String text, long afterId, int limit) {
+        List<Posting> lists = candidateLists(text);
+        if (lists.isEmpty()) {
+            return List.of();
+        }
+        if (isShort(text)) { // из каждого списка берем не больше limit первых айди и оставляем limit наименьших
+            TreeSet<Long> result = new TreeSet<>();
+            for (Posting posting : lists) {
+                for (Long id : posting.ids.tailSet(afterId, false)) {
+                    if (result.size() == limit && id > result.last()) {
+                        break;
+                    }
+                    if (result.add(id) && result.size() > limit) {
+                        result.pollLast();
+                    }
+                }
+            }
+            return new ArrayList<>(result);
+        }
+        List<Long> result = new ArrayList<>();
+        for (Long id : lists.get(0).ids.tailSet(afterId, false)) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (containedInAll(lists, id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // для короткого запроса - все списки триграмм, которые его содержат; для длинного - списки всех его
+    // триграмм от самого короткого, либо пусто, если какой-то триграммы нет
+    private List<Posting> candidateLists(String text) {
+        if (!built) {
+            build();
+        }
+        String query = text.toLowerCase();
+        List<Posting> lists = new ArrayList<>();
+        if (isShort(query)) {
+            for (Map.Entry<String, Posting> entry : postings.entrySet()) {
+                if (entry.getKey().contains(query)) {
+                    lists.add(entry.getValue());
+                }
+            }
+            return lists;
+        }
+        for (String gram : grams(query)) {
+            Posting posting = postings.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(posting -> posting.size));
+        return lists;
+    }
+
+    private static boolean isShort(String text) {
+        return text.length() < GRAM_LENGTH;
+    }
+
+    private static boolean containedInAll(List<Posting> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).ids.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containedInAny(List<Posting> lists, Long id) {
+        for (Posting posting : lists) {
+            if (posting.ids.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> gramsOf(Item item) {
+        Set<String> grams = new HashSet<>();
+        if (Boolean.TRUE.equals(item.getAvailable())) { // недоступные вещи в поиск не попадают
+            grams.addAll(grams(item.getName()));
+            grams.addAll(grams(item.getDescription()));
+        }
+        return grams;
+    }
+
+    static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        if (text == null || text.isEmpty()) {
+            return grams;
+        }
+        String lowerText = text.toLowerCase();
+        if (lowerText.length() < GRAM_LENGTH) {
+            grams.add(lowerText);
+            return grams;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= lowerText.length(); i++) {
+            grams.add(lowerText.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private synchronized void put(Long itemId, Set<String> grams) {
+        remove(itemId);
+        if (grams.isEmpty()) {
+            return;
+        }
+        grams.forEach(gram -> postings.computeIfAbsent(gram, key -> new Posting()).add(itemId));
+        itemGrams.put(itemId, grams);
+    }
+
+    // изменения текущей транзакции: одна синхронизация на транзакцию, чтобы после отката вернуть
+    // триграммы, бывшие до ее первого изменения вещи
+    private PendingChanges pendingChanges() {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        PendingChanges created = new PendingChanges();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TrigramItemSearchIndex.this);
+                synchronized (TrigramItemSearchIndex.this) {
+                    (status == STATUS_COMMITTED ? created.changed : created.original).forEach(
+                            TrigramItemSearchIndex.this::put);
+                }
+            }
+        });
+        return created;
+    }
+
+    private void remove(Long itemId) {
+        Set<String> grams = itemGrams.remove(itemId);
+        if (grams == null) {
+            return;
+        }
+        grams.forEach(gram -> {
+            Posting posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(itemId);
+                if (posting.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        });
+    }
+
+    private synchronized void build() {
+        if (built) {
+            return;
+        }
+        long lastId = 0;
+        List<Item> batch;
+        do {
+            batch = itemRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            batch.forEach(item -> put(item.getId(), gramsOf(item))); // загружено из базы - уже закоммичено
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        built = true;
+        log.info("Поисковый индекс вещей построен. Проиндексировано вещей: {}", itemGrams.size());
+    }
+
+    private static class PendingChanges {
+
+        private final Map<Long, Set<String>> original = new HashMap<>(); // до первого изменения в транзакции
+
+        private final Map<Long, Set<String>> changed = new HashMap<>(); // после последнего
+    }
+
+    // айди вещей по возрастанию: пачки кандидатов читаются с нужного айди без сортировки всего списка.
+    // Размер хранится отдельно - size() у ConcurrentSkipListSet обходит весь список. Меняется под блокировкой индекса
+    private static class Posting {
+
+        private final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+
+        private volatile int size;
+
+        private void add(Long id) {
+            if (ids.add(id)) {
+                size++;
+            }
+        }
+
+        private void remove(Long id) {
+            if (ids.remove(id)) {
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+
+@Getter
+@Setter
+@EqualsAndHashCode
+public class ForItemsBookingDto {
+
+    private Long itemId;
+
+    private ForItemBookingDto booking;
+
+    public ForItemsBookingDto(Long itemId, Long id, LocalDateTime start, LocalDateTime end, Long bookerId) {
+        this.itemId = itemId;
+        this.booking = new ForItemBookingDto(id, start, end, bookerId);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+
+@Getter
+@Setter
+@EqualsAndHashCode
+public class ForItemsCommentDto {
+
+    private Long itemId;
+
+    private CommentDto comment;
+
+    public ForItemsCommentDto(Long itemId, Long id, String text, String authorName, LocalDateTime created) {
+        this.itemId = itemId;
+        this.comment = new CommentDto(id, text, authorName, created);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.Getter;
+import ru.practicum.shareit.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// позиция последнего отданного элемента (время сортировки и айди) для постраничного вывода без OFFSET.
+// Клиенту отдается в виде непрозрачной строки
+@Getter
+public class Cursor {
+
+    public static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime time;
+
+    private final Long id;
+
+    private Cursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    public static Cursor of(LocalDateTime time, Long id) {
+        return new Cursor(time, id);
+    }
+
+    public static Cursor of(Long id) {
+        return new Cursor(null, id);
+    }
+
+    // пустая строка - запрос первой страницы, для нее возвращается first
+    public static Cursor decode(String value, Cursor first) {
+        if (value == null || value.isEmpty()) {
+            return first;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            String time = decoded.substring(0, separatorIndex);
+            Long id = Long.valueOf(decoded.substring(separatorIndex + 1));
+            return new Cursor(time.isEmpty() ? null : LocalDateTime.parse(time), id);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Некорректный курсор: " + value);
+        }
+    }
+
+    // для списков, упорядоченных по времени: курсор без времени (например, из списка вещей) иначе
+    // сравнивался бы с null и молча давал пустую страницу
+    public static Cursor decodeTimed(String value, Cursor first) {
+        Cursor cursor = decode(value, first);
+        if (cursor != first && cursor.getTime() == null) {
+            throw new BadRequestException("Некорректный курсор: " + value);
+        }
+        return cursor;
+    }
+
+    public String encode() {
+        String value = (time == null ? "" : time.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
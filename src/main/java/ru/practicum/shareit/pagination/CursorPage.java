@@ -0,0 +1,54 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.Getter;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.exception.BadRequestException;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+public class CursorPage<T> {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final int DEFAULT_SIZE = 20;
+
+    private final List<T> items;
+
+    private final String nextCursor; // null, если страница последняя
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public static int checkSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        if (size <= 0) {
+            throw new BadRequestException("Ошибка указания формата вывода запросов. " +
+                    "Количество элементов для отображения - положительное число");
+        }
+        return size;
+    }
+
+    // rows запрашиваются в количестве size + 1: лишняя строка означает, что есть следующая страница
+    public static <E, T> CursorPage<T> of(List<E> rows, int size, Function<E, Cursor> cursorOf,
+                                          Function<List<E>, List<T>> mapper) {
+        if (rows.size() > size) {
+            List<E> pageRows = rows.subList(0, size);
+            return new CursorPage<>(mapper.apply(pageRows), cursorOf.apply(pageRows.get(size - 1)).encode());
+        }
+        return new CursorPage<>(mapper.apply(rows), null);
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(items);
+    }
+}
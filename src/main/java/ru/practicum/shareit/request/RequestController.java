@@ -1,9 +1,15 @@
 package ru.practicum.shareit.request;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.model.GetRequestInfo;
+import ru.practicum.shareit.streaming.NdjsonResponse;
 
 import java.util.List;
 
@@ -13,8 +19,11 @@ public class RequestController {
 
     private final RequestService requestService;
 
-    public RequestController(RequestService requestService) {
+    private final ObjectMapper objectMapper;
+
+    public RequestController(RequestService requestService, ObjectMapper objectMapper) {
         this.requestService = requestService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -35,6 +44,28 @@ public class RequestController {
         return requestService.getRequests(GetRequestInfo.of(userId, from, size));
     }
 
+    @GetMapping(path = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRequests(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return NdjsonResponse.of(objectMapper, requestService.streamRequests(userId));
+    }
+
+    @GetMapping(path = "/all", params = "cursor")
+    public ResponseEntity<List<RequestDto>> getRequestsByCursor(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                @RequestParam String cursor,
+                                                                @RequestParam(required = false) Integer size) {
+        return requestService.getRequestsByCursor(userId, cursor, size).toResponseEntity();
+    }
+
+    @GetMapping("/matching")
+    public List<RequestDto> getMatchingRequests(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return requestService.getMatchingRequests(userId);
+    }
+
+    @GetMapping("/{requestId}/matching")
+    public List<ItemDto> getMatchingItems(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                          @PathVariable Long requestId) {
+        return requestService.getMatchingItems(userId, requestId);
+    }
 
     @GetMapping("/{requestId}")
     public RequestDto getRequestById(@RequestHeader("X-Sharer-User-Id") Long userId, @PathVariable Long requestId) {
@@ -0,0 +1,264 @@
+package ru.practicum.shareit.request;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.Request;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// сопоставление открытых запросов и доступных вещей по общим словам описаний.
+// Открытый запрос - запрос, на который еще не добавлено ни одной вещи.
+// Индексы строятся лениво при первом обращении, дальше поддерживаются из addRequest/addItem/updateItem
+@Component
+@Slf4j
+public class RequestMatcher {
+
+    static final int MAX_MATCHES = 20;
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    private static final int STEM_LENGTH = 4; // общее начало слова вместо окончаний: "дрель", "дрели" -> "дрел"
+
+    private static final double MIN_SCORE = 0.5; // доля слов запроса, которые должны найтись у вещи
+
+    private static final Set<String> STOP_STEMS = Set.of("нужн", "нуже", "ищу", "для", "что", "чтоб", "кто", "где",
+            "можн", "пожа", "очен", "хочу", "need", "for", "the", "with", "and", "want", "look");
+
+    private final RequestRepository requestRepository;
+
+    private final ItemRepository itemRepository;
+
+    // открытые запросы, владелец - автор запроса. Вещь подходит, если в ней есть заметная доля слов запроса
+    private final TokenIndex requests = new TokenIndex(true);
+
+    // доступные вещи, владелец - хозяин вещи. Долю считаем от слов запроса, по которому ищут вещи
+    private final TokenIndex items = new TokenIndex(false);
+
+    private volatile boolean built;
+
+    public RequestMatcher(RequestRepository requestRepository, ItemRepository itemRepository) {
+        this.requestRepository = requestRepository;
+        this.itemRepository = itemRepository;
+    }
+
+    public void index(Request request) {
+        build();
+        synchronized (this) {
+            requests.put(request.getId(), request.getRequester().getId(), stems(request.getDescription()));
+        }
+    }
+
+    // индексирует вещь и возвращает открытые запросы, которые она, вероятно, удовлетворяет
+    public List<Long> index(Item item) {
+        build();
+        Set<String> stems;
+        synchronized (this) {
+            put(item);
+            stems = items.stems(item.getId());
+        }
+        return stems == null ? List.of() : requests.match(stems, item.getOwnerId());
+    }
+
+    // открытые чужие запросы, подходящие хотя бы к одной доступной вещи владельца
+    public List<Long> matchRequests(Long ownerId) {
+        build();
+        Map<Long, Double> scores = new HashMap<>();
+        for (Long itemId : items.ownedBy(ownerId)) {
+            Set<String> stems = items.stems(itemId);
+            if (stems != null) {
+                requests.score(stems, ownerId).forEach((requestId, score) -> scores.merge(requestId, score, Math::max));
+            }
+        }
+        return TokenIndex.top(scores);
+    }
+
+    // доступные чужие вещи, которые, вероятно, удовлетворяют запросу
+    public List<Long> matchItems(Long requesterId, String description) {
+        build();
+        return items.match(stems(description), requesterId);
+    }
+
+    static Set<String> stems(String text) {
+        Set<String> stems = new HashSet<>();
+        if (text == null) {
+            return stems;
+        }
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() < MIN_TOKEN_LENGTH) {
+                continue;
+            }
+            String stem = token.length() > STEM_LENGTH ? token.substring(0, STEM_LENGTH) : token;
+            if (!STOP_STEMS.contains(stem)) {
+                stems.add(stem);
+            }
+        }
+        return stems;
+    }
+
+    private void put(Item item) {
+        if (item.getRequestId() != null) { // на запрос ответили - он больше не открыт
+            requests.remove(item.getRequestId());
+        }
+        if (Boolean.TRUE.equals(item.getAvailable())) {
+            Set<String> stems = stems(item.getName());
+            stems.addAll(stems(item.getDescription()));
+            items.put(item.getId(), item.getOwnerId(), stems);
+        } else {
+            items.remove(item.getId());
+        }
+    }
+
+    private void build() {
+        if (built) {
+            return;
+        }
+        synchronized (this) {
+            if (built) {
+                return;
+            }
+            long lastId = 0;
+            List<Request> requestBatch;
+            do {
+                requestBatch = requestRepository.findByIdGreaterThanOrderByIdAsc(lastId,
+                        PageRequest.of(0, LOAD_BATCH_SIZE));
+                requestBatch.forEach(request -> requests.put(request.getId(), request.getRequester().getId(),
+                        stems(request.getDescription())));
+                if (!requestBatch.isEmpty()) {
+                    lastId = requestBatch.get(requestBatch.size() - 1).getId();
+                }
+            } while (requestBatch.size() == LOAD_BATCH_SIZE);
+            // вещи загружаются после запросов, чтобы закрыть запросы, на которые уже ответили
+            lastId = 0;
+            List<Item> itemBatch;
+            do {
+                itemBatch = itemRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                itemBatch.forEach(this::put);
+                if (!itemBatch.isEmpty()) {
+                    lastId = itemBatch.get(itemBatch.size() - 1).getId();
+                }
+            } while (itemBatch.size() == LOAD_BATCH_SIZE);
+            built = true;
+            log.info("Индекс сопоставления запросов построен. Открытых запросов: {}, доступных вещей: {}",
+                    requests.size(), items.size());
+        }
+    }
+
+    // обратный индекс основ слов. Запись меняется только под блокировкой RequestMatcher, читается без нее
+    static class TokenIndex {
+
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>(); // основа слова -> айди
+
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>(); // айди -> владелец и основы слов
+
+        private final Map<Long, Set<Long>> byOwner = new ConcurrentHashMap<>(); // владелец -> айди
+
+        private final boolean scoreByEntry; // долю общих слов считать от слов записи, а не от слов поиска
+
+        TokenIndex(boolean scoreByEntry) {
+            this.scoreByEntry = scoreByEntry;
+        }
+
+        void put(Long id, Long ownerId, Set<String> stems) {
+            remove(id);
+            if (stems.isEmpty()) {
+                return;
+            }
+            Set<String> ownStems = Set.copyOf(stems);
+            ownStems.forEach(stem -> postings.computeIfAbsent(stem, key -> ConcurrentHashMap.newKeySet()).add(id));
+            entries.put(id, new Entry(ownerId, ownStems));
+            byOwner.computeIfAbsent(ownerId, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+
+        void remove(Long id) {
+            Entry entry = entries.remove(id);
+            if (entry == null) {
+                return;
+            }
+            entry.stems.forEach(stem -> {
+                Set<Long> ids = postings.get(stem);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(stem);
+                    }
+                }
+            });
+            Set<Long> owned = byOwner.get(entry.ownerId);
+            if (owned != null) {
+                owned.remove(id);
+                if (owned.isEmpty()) {
+                    byOwner.remove(entry.ownerId);
+                }
+            }
+        }
+
+        Set<String> stems(Long id) {
+            Entry entry = entries.get(id);
+            return entry == null ? null : entry.stems;
+        }
+
+        Set<Long> ownedBy(Long ownerId) {
+            return byOwner.getOrDefault(ownerId, Set.of());
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        List<Long> match(Set<String> stems, Long excludedOwnerId) {
+            return top(score(stems, excludedOwnerId));
+        }
+
+        // доля общих основ слов для каждой найденной записи; записи владельца excludedOwnerId пропускаются
+        Map<Long, Double> score(Set<String> stems, Long excludedOwnerId) {
+            Map<Long, Integer> common = new HashMap<>();
+            for (String stem : stems) {
+                Set<Long> ids = postings.get(stem);
+                if (ids != null) {
+                    ids.forEach(id -> common.merge(id, 1, Integer::sum));
+                }
+            }
+            Map<Long, Double> scores = new HashMap<>();
+            common.forEach((id, count) -> {
+                Entry entry = entries.get(id);
+                if (entry == null || entry.ownerId.equals(excludedOwnerId)) {
+                    return;
+                }
+                double score = (double) count / (scoreByEntry ? entry.stems.size() : stems.size());
+                if (score >= MIN_SCORE) {
+                    scores.put(id, score);
+                }
+            });
+            return scores;
+        }
+
+        // лучшие совпадения: сначала с большей долей общих слов, при равенстве - более новые
+        static List<Long> top(Map<Long, Double> scores) {
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()))
+                    .limit(MAX_MATCHES)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+
+        private static class Entry {
+
+            private final Long ownerId;
+
+            private final Set<String> stems;
+
+            private Entry(Long ownerId, Set<String> stems) {
+                this.ownerId = ownerId;
+                this.stems = stems;
+            }
+        }
+    }
+}
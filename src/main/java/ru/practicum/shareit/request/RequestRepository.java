@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.request.model.Request;
 
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
@@ -32,4 +33,20 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
 
     List<Request> findByRequester_IdNot(Long requesterId, Pageable pageable);
 
+    // лента чужих запросов от новых к старым. Условие created <= курсора дублирует составное условие после него:
+    // по нему планировщик начинает обход индекса (created, id) сразу с позиции курсора, а не с начала ленты
+    @Query("select rt from Request as rt " +
+            "where rt.requester.id <> :id and rt.created <= :cursorCreated " +
+            "and (rt.created < :cursorCreated or (rt.created = :cursorCreated and rt.id < :cursorId)) " +
+            "order by rt.created desc, rt.id desc")
+    List<Request> getRequestsAfterCursor(@Param("id") Long id,
+                                         @Param("cursorCreated") LocalDateTime cursorCreated,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable pageable);
+
+    List<Request> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select rt.requester.id from Request as rt where rt.id = :id")
+    Long getRequesterId(@Param("id") Long id);
+
 }
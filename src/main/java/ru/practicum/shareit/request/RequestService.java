@@ -1,7 +1,10 @@
 package ru.practicum.shareit.request;
 
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.model.GetRequestInfo;
+import ru.practicum.shareit.streaming.RowStream;
 
 import java.util.List;
 
@@ -13,6 +16,14 @@ public interface RequestService {
 
     public List<RequestDto> getRequests(GetRequestInfo requestInfo);
 
+    public CursorPage<RequestDto> getRequestsByCursor(Long userId, String cursor, Integer size);
+
+    public RowStream<RequestDto> streamRequests(Long userId);
+
     public RequestDto getRequestById(Long userId, Long requestId);
 
+    public List<RequestDto> getMatchingRequests(Long userId);
+
+    public List<ItemDto> getMatchingItems(Long userId, Long requestId);
+
 }
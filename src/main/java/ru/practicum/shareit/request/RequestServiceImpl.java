@@ -4,19 +4,30 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.ItemMapper;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.model.GetRequestInfo;
 import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.streaming.RowStream;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
 import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -32,22 +43,37 @@ public class RequestServiceImpl implements RequestService {
     private final RequestMapper requestMapper;
     private final ItemMapper itemMapper;
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final UserCache userCache;
+
+    private final RequestMatcher requestMatcher;
+
     public RequestServiceImpl(UserRepository userRepository,
                               ItemRepository itemRepository,
                               RequestRepository requestRepository,
                               RequestMapper requestMapper,
-                              ItemMapper itemMapper) {
+                              ItemMapper itemMapper,
+                              TransactionTemplate transactionTemplate,
+                              EntityManager entityManager,
+                              UserCache userCache,
+                              RequestMatcher requestMatcher) {
         this.userRepository = userRepository;
         this.itemRepository = itemRepository;
         this.requestRepository = requestRepository;
         this.requestMapper = requestMapper;
         this.itemMapper = itemMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.userCache = userCache;
+        this.requestMatcher = requestMatcher;
     }
 
     @Override
     public RequestDto addRequest(Long userId, RequestDto requestDto) {
-        User user = userRepository.getUserById(userId);
-        if (user == null) {
+        if (userCache.get(userId) == null) {
             log.error("Пользователь не найден");
             throw new NotFoundException("Пользователь не найден");
         }
@@ -56,15 +82,16 @@ public class RequestServiceImpl implements RequestService {
             throw new BadRequestException("Ошибка. Запрос на вещь должен иметь непустое описание");
         }
         Request request = requestMapper.mapFromRequestDto(requestDto);
-        request.setRequester(user);
+        request.setRequester(userRepository.getReferenceById(userId));
         request.setCreated(LocalDateTime.now());
         Request inBaseRequest = requestRepository.save(request);
+        requestMatcher.index(inBaseRequest);
         return requestMapper.mapFromRequest(inBaseRequest);
     }
 
     @Override
     public List<RequestDto> getOwnRequests(Long userId) {
-        User user = userRepository.getUserById(userId);
+        User user = userCache.get(userId);
         if (user == null) {
             log.error("Пользователь не найден");
             throw new NotFoundException("Пользователь не найден");
@@ -103,9 +130,40 @@ public class RequestServiceImpl implements RequestService {
         return requestsDto;
     }
 
+    @Override
+    public CursorPage<RequestDto> getRequestsByCursor(Long userId, String cursor, Integer size) {
+        int pageSize = CursorPage.checkSize(size);
+        Cursor after = Cursor.decodeTimed(cursor, Cursor.of(Cursor.MAX_TIME, Long.MAX_VALUE));
+        List<Request> requests = requestRepository.getRequestsAfterCursor(userId, after.getTime(), after.getId(),
+                PageRequest.of(0, pageSize + 1));
+        return CursorPage.of(requests, pageSize, request -> Cursor.of(request.getCreated(), request.getId()),
+                this::settingRequestDtoList);
+    }
+
+    @Override
+    public RowStream<RequestDto> streamRequests(Long userId) {
+        // запросы читаются порциями тем же поиском по (created, id), что и в постраничном режиме
+        return action -> transactionTemplate.executeWithoutResult(status -> {
+            Cursor after = Cursor.of(Cursor.MAX_TIME, Long.MAX_VALUE);
+            List<Request> requests;
+            do {
+                requests = requestRepository.getRequestsAfterCursor(userId, after.getTime(), after.getId(),
+                        PageRequest.of(0, RowStream.CHUNK_SIZE));
+                if (requests.isEmpty()) {
+                    break;
+                }
+                Request last = requests.get(requests.size() - 1);
+                after = Cursor.of(last.getCreated(), last.getId());
+                List<RequestDto> requestsDto = settingRequestDtoList(requests);
+                entityManager.clear();
+                requestsDto.forEach(action);
+            } while (requests.size() == RowStream.CHUNK_SIZE);
+        });
+    }
+
     @Override
     public RequestDto getRequestById(Long userId, Long requestId) {
-        User user = userRepository.getUserById(userId);
+        User user = userCache.get(userId);
         Request request = requestRepository.getRequestsById(requestId);
         if (user == null) {
             log.error("Пользователь не найден");
@@ -120,6 +178,43 @@ public class RequestServiceImpl implements RequestService {
         return requestDto;
     }
 
+    @Override
+    public List<RequestDto> getMatchingRequests(Long userId) {
+        if (userCache.get(userId) == null) {
+            log.error("Пользователь не найден");
+            throw new NotFoundException("Пользователь не найден");
+        }
+        List<Long> ids = requestMatcher.matchRequests(userId);
+        List<Request> requests = inOrder(requestRepository.findAllById(ids), Request::getId, ids);
+        return settingRequestDtoList(requests);
+    }
+
+    @Override
+    public List<ItemDto> getMatchingItems(Long userId, Long requestId) {
+        if (userCache.get(userId) == null) {
+            log.error("Пользователь не найден");
+            throw new NotFoundException("Пользователь не найден");
+        }
+        Request request = requestRepository.getRequestsById(requestId);
+        if (request == null) {
+            log.error("Запрос на вещь не найден");
+            throw new NotFoundException("Запрос на вещь не найден");
+        }
+        List<Long> ids = requestMatcher.matchItems(request.getRequester().getId(), request.getDescription());
+        return inOrder(itemRepository.findAllById(ids), Item::getId, ids).stream()
+                .filter(item -> Boolean.TRUE.equals(item.getAvailable()))
+                .map(itemMapper::mapFromItem)
+                .collect(Collectors.toList());
+    }
+
+    // findAllById не сохраняет порядок айди, а совпадения отсортированы по убыванию похожести
+    private static <T> List<T> inOrder(List<T> entities, Function<T, Long> idGetter, List<Long> ids) {
+        Map<Long, T> byId = entities.stream().collect(Collectors.toMap(idGetter, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
     private void addItems(RequestDto requestDto) {
         List<ItemDto> items = itemRepository.getItemsByRequestId(requestDto.getId()).stream()
@@ -128,11 +223,22 @@ public class RequestServiceImpl implements RequestService {
         requestDto.setItems(items);
     }
 
+    // вещи всей страницы одним запросом по request_id in (...), затем раскладываются по запросам
     private List<RequestDto> settingRequestDtoList(List<Request> requests) {
         List<RequestDto> requestsDto = requests.stream()
                 .map(requestMapper::mapFromRequest)
                 .collect(Collectors.toList());
-        requestsDto.forEach(this::addItems);
+        if (requestsDto.isEmpty()) {
+            return requestsDto;
+        }
+        Map<Long, List<ItemDto>> itemsByRequest = itemRepository.getItemsByRequestIdIn(requestsDto.stream()
+                        .map(RequestDto::getId)
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(Item::getRequestId,
+                        Collectors.mapping(itemMapper::mapFromItem, Collectors.toList())));
+        requestsDto.forEach(requestDto ->
+                requestDto.setItems(itemsByRequest.getOrDefault(requestDto.getId(), new ArrayList<>())));
         return requestsDto;
     }
 }
@@ -7,6 +7,7 @@ import ru.practicum.shareit.user.User;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Getter
 @Setter
@@ -25,10 +26,19 @@ public class Request {
     private String description;
 
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
     private User requester;
 
     @Column(name = "created")
     private LocalDateTime created;
 
+    // база хранит время с точностью до микросекунд: иначе курсор, построенный по наносекундам сущности,
+    // не совпадет с сохраненной строкой и граничный запрос повторится на следующей странице
+    @PrePersist
+    void truncateCreated() {
+        if (created != null) {
+            created = created.truncatedTo(ChronoUnit.MICROS);
+        }
+    }
 }
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public final class NdjsonResponse {
+
+    private static final int FLUSH_EVERY = 100;
+
+    private NdjsonResponse() {
+    }
+
+    // каждая строка пишется в ответ сразу после чтения, весь список в памяти не собирается
+    public static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper, RowStream<T> rows) {
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody body = out -> {
+            int[] written = {0};
+            try {
+                rows.forEachRow(row -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(row));
+                        out.write('\n');
+                        if (++written[0] % FLUSH_EVERY == 0) {
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // клиент закрыл соединение - прерываем чтение из базы
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
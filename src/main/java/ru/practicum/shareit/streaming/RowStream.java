@@ -0,0 +1,30 @@
+package ru.practicum.shareit.streaming;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Отложенная выдача строк: запрос к базе выполняется только при вызове forEachRow
+@FunctionalInterface
+public interface RowStream<T> {
+
+    // столько строк за раз читается из курсора и держится в контексте персистентности
+    int CHUNK_SIZE = 500;
+
+    void forEachRow(Consumer<T> action);
+
+    // прочитанные сущности периодически отсоединяются, иначе контекст растёт вместе с выборкой
+    static <E, T> void drain(Stream<E> rows, EntityManager entityManager, Function<E, T> mapper,
+                             Consumer<T> action) {
+        int[] read = {0};
+        try (rows) {
+            rows.forEach(row -> {
+                action.accept(mapper.apply(row));
+                if (++read[0] % CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+}
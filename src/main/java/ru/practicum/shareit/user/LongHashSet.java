@@ -0,0 +1,114 @@
+package ru.practicum.shareit.user;
+
+// множество положительных long без упаковки: открытая адресация с линейным пробированием, 0 - пустая ячейка.
+// Не потокобезопасно, синхронизация - на стороне UserExistenceFilter
+class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+
+    private int mask;
+
+    private int size;
+
+    LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long value) {
+        return value > 0 && indexOf(value) >= 0;
+    }
+
+    boolean add(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Ожидается положительное значение: " + value);
+        }
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        if (++size * 2 > table.length) { // заполнение держим не выше половины, чтобы цепочки были короткими
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    boolean remove(long value) {
+        if (value <= 0) {
+            return false;
+        }
+        int hole = indexOf(value);
+        if (hole < 0) {
+            return false;
+        }
+        // сдвигаем хвост цепочки на место удаленного элемента, чтобы поиск не обрывался на дыре
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            long moved = table[next];
+            if (moved == EMPTY) {
+                break;
+            }
+            int home = slot(moved);
+            boolean canMove = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (canMove) {
+                table[hole] = moved;
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    private int indexOf(long value) {
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L; // перемешивание, иначе подряд идущие айди собьются в кластеры
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        allocate(capacity);
+        size = 0;
+        for (long value : old) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.cache.EntityCache;
+
+import java.time.Duration;
+
+// кэш пользователей по айди. Отдаваемые объекты - только для чтения:
+// для привязки к брони, запросу или комментарию пользователь берется из репозитория.
+// Метрики - cache.gets/cache.evictions с cache=users
+@Component
+public class UserCache extends EntityCache<User> {
+
+    public UserCache(@Value("${shareit.entity-cache.max-size:10000}") long maxSize,
+                     @Value("${shareit.entity-cache.ttl:10m}") Duration ttl,
+                     UserRepository userRepository,
+                     MeterRegistry meterRegistry) {
+        super("users", maxSize, ttl, userRepository::getUserById, User::getId, UserCache::copyOf, meterRegistry);
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .build();
+    }
+}
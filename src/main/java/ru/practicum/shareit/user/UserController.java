@@ -1,7 +1,12 @@
 package ru.practicum.shareit.user;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.streaming.NdjsonResponse;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
@@ -14,8 +19,11 @@ public class UserController {
 
     private final UserService userService;
 
-    public UserController(UserService userService) {
+    private final ObjectMapper objectMapper;
+
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -36,6 +44,12 @@ public class UserController {
         return userService.findAll();
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Получен запрос на потоковую выгрузку списка всех пользователей");
+        return NdjsonResponse.of(objectMapper, userService.streamAll());
+    }
+
     @DeleteMapping("/{userId}")
     public void removeById(@PathVariable Long userId) {
         log.info("Получен запрос на удаление пользователя с айди {}", userId);
@@ -0,0 +1,128 @@
+package ru.practicum.shareit.user;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// проверка существования пользователя по множеству айди в памяти вместо выгрузки всех айди из базы.
+// Промах перепроверяется запросом в базу: так видны пользователи, добавленные другими экземплярами приложения
+@Component
+public class UserExistenceFilter {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongHashSet ids = new LongHashSet(LOAD_BATCH_SIZE);
+
+    private volatile boolean loaded;
+
+    public UserExistenceFilter(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public boolean exists(Long id) {
+        if (id == null) {
+            return false;
+        }
+        loadIfNeeded();
+        lock.readLock().lock();
+        try {
+            if (ids.contains(id)) {
+                return true;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!userRepository.existsById(id)) {
+            return false;
+        }
+        addNow(id);
+        return true;
+    }
+
+    // айди попадает в множество только после коммита, до этого его найдет запрос в базу
+    public void add(Long id) {
+        if (id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(id);
+                }
+            });
+        } else {
+            addNow(id);
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        removeNow(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // до коммита параллельная проверка еще видит пользователя в базе и может вернуть его в множество
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeNow(id);
+                }
+            });
+        }
+    }
+
+    private void addNow(Long id) {
+        if (id <= 0) { // база таких айди не выдает, а множество их не хранит - фильтр не должен ронять запись
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeNow(Long id) {
+        lock.writeLock().lock();
+        try {
+            ids.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            Long lastId = 0L;
+            List<Long> batch;
+            do {
+                batch = userRepository.getIdsAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                batch.forEach(ids::add);
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1);
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package ru.practicum.shareit.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Transactional
 public interface UserRepository extends JpaRepository<User,Long> {
@@ -13,7 +18,12 @@ public interface UserRepository extends JpaRepository<User,Long> {
 
     void deleteUserById(Long id);
 
-    @Query(value = "SELECT u.id FROM User u")
-    List<Long> getAllIds();
+    @Query(value = "SELECT u.id FROM User u WHERE u.id > :id ORDER BY u.id")
+    List<Long> getIdsAfter(@Param("id") Long id, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query(value = "SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAll();
 
 }
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.user;
 
+import ru.practicum.shareit.streaming.RowStream;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.List;
@@ -12,6 +13,8 @@ public interface UserService {
 
     List<UserDto> findAll();
 
+    RowStream<UserDto> streamAll();
+
     void removeById(Long id);
 
     UserDto updateUser(Long id, UserDto userDto);
@@ -3,9 +3,12 @@ package ru.practicum.shareit.user;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.streaming.RowStream;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,21 +19,36 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
 
-    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper) {
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final UserCache userCache;
+
+    private final UserExistenceFilter userExistenceFilter;
+
+    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper,
+                           TransactionTemplate transactionTemplate, EntityManager entityManager,
+                           UserCache userCache, UserExistenceFilter userExistenceFilter) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.userCache = userCache;
+        this.userExistenceFilter = userExistenceFilter;
     }
 
     @Transactional
     public UserDto addUser(UserDto userDto) {
         User user = userMapper.mapFromUserDto(userDto);
         User inMemoryUser = userRepository.save(user);
+        userExistenceFilter.add(inMemoryUser.getId());
         log.info("Пользователь с айди: {} добавлен в хранилище", inMemoryUser.getId());
         return userMapper.mapFromUser(inMemoryUser);
     }
 
     public UserDto findById(Long id) {
-        User user = userRepository.getUserById(id);
+        User user = userCache.get(id);
         if (user == null) {
             throw new NotFoundException("Пользователь не найден");
         } else {
@@ -43,14 +61,21 @@ public class UserServiceImpl implements UserService {
         return inMemoryUserList.stream().map(userMapper::mapFromUser).collect(Collectors.toList());
     }
 
+    public RowStream<UserDto> streamAll() {
+        return action -> transactionTemplate.executeWithoutResult(status ->
+                RowStream.drain(userRepository.streamAll(), entityManager, userMapper::mapFromUser, action));
+    }
+
     @Transactional
     public void removeById(Long id) {
         userRepository.deleteUserById(id);
+        userCache.invalidate(id);
+        userExistenceFilter.remove(id);
     }
 
     @Transactional
     public UserDto updateUser(Long id, UserDto userDto) {
-        User inMemoryUser = userRepository.getUserById(id);
+        User inMemoryUser = userCache.get(id);
         User user = User.builder()
                 .id(inMemoryUser.getId())
                 .name(inMemoryUser.getName())
@@ -66,6 +91,7 @@ public class UserServiceImpl implements UserService {
             log.info("Имя пользователя с айди {} успешно обновлено", id);
         }
         userRepository.save(user);
+        userCache.invalidate(id);
         log.info("Успешное добавление в хранилище обновлений пользователя");
         return userMapper.mapFromUser(user);
     }
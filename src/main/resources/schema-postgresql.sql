@@ -0,0 +1,12 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS ix_items_name_trgm ON items USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS ix_items_description_trgm ON items USING gin (lower(description) gin_trgm_ops);
+
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+DO 'BEGIN IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''ex_bookings_item_approved_overlap'') THEN
+    ALTER TABLE bookings ADD CONSTRAINT ex_bookings_item_approved_overlap
+        EXCLUDE USING gist (item_id WITH =, tsrange(booking_from, booking_to) WITH &&) WHERE (status = ''APPROVED'');
+END IF; END';
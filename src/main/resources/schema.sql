@@ -36,11 +36,14 @@ CREATE TABLE IF NOT EXISTS bookings
     booking_to   TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
     booker_id    BIGINT,
     status       VARCHAR(50)                             NOT NULL,
+    version      BIGINT                                  NOT NULL DEFAULT 0,
     CONSTRAINT fk_bookers_to_items FOREIGN KEY (item_id) REFERENCES items (id),
     CONSTRAINT fk_bookers_to_users FOREIGN KEY (booker_id) REFERENCES users (id),
     CONSTRAINT pk_bookers PRIMARY KEY (id)
 );
 
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
 
 CREATE TABLE IF NOT EXISTS comments
 (
@@ -54,3 +57,12 @@ CREATE TABLE IF NOT EXISTS comments
     CONSTRAINT pk_comments PRIMARY KEY (id)
 );
 
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_from ON bookings (booker_id, booking_from);
+
+CREATE INDEX IF NOT EXISTS ix_bookings_item_from ON bookings (item_id, booking_from);
+
+CREATE INDEX IF NOT EXISTS ix_items_owner ON items (owner_id);
+
+CREATE INDEX IF NOT EXISTS ix_items_request ON items (request_id);
+
+CREATE INDEX IF NOT EXISTS ix_requests_created_id ON requests (created, id);
@@ -9,23 +9,32 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.shareit.booking.BookingController;
 import ru.practicum.shareit.booking.BookingService;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.idempotency.LocalIdempotencyStore;
+import ru.practicum.shareit.pagination.CursorPage;
 
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(BookingController.class)
+@Import(LocalIdempotencyStore.class)
 @AutoConfigureMockMvc
 public class BookingControllerTest {
 
@@ -147,4 +156,140 @@ public class BookingControllerTest {
 
     }
 
+    @Test
+    void getOwnerBookingsByCursorTest() throws Exception {
+        BookingDtoResponse bookingDto = BookingDtoResponse
+                .builder()
+                .id(1L)
+                .status(Status.WAITING)
+                .start(LocalDateTime.of(2022, 1, 1, 1, 1).withNano(0))
+                .end(LocalDateTime.of(2022, 2, 1, 1, 1).withNano(0))
+                .build();
+        when(service.getOwnerBookingsByCursor(1L, "ALL", "", 20))
+                .thenReturn(new CursorPage<>(List.of(bookingDto), "abc"));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("cursor", "")
+                        .param("size", "20")
+                        .param("state", "ALL")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "abc"))
+                .andExpect(jsonPath("$[0].id").value(bookingDto.getId()));
+
+        verify(service, never()).getOwnerBookings(anyLong(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void streamOwnerBookingsTest() throws Exception {
+        BookingDtoResponse bookingDto = BookingDtoResponse
+                .builder()
+                .id(1L)
+                .status(Status.WAITING)
+                .start(LocalDateTime.of(2022, 1, 1, 1, 1).withNano(0))
+                .end(LocalDateTime.of(2022, 2, 1, 1, 1).withNano(0))
+                .build();
+        BookingDtoResponse secondBookingDto = BookingDtoResponse
+                .builder()
+                .id(2L)
+                .status(Status.APPROVED)
+                .build();
+        when(service.streamOwnerBookings(1L, "ALL")).thenReturn(action -> {
+            action.accept(bookingDto);
+            action.accept(secondBookingDto);
+        });
+
+        MvcResult result = mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString()
+                .split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals(1L, mapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("APPROVED", mapper.readTree(lines[1]).get("status").asText());
+        verify(service, never()).getOwnerBookings(anyLong(), anyString(), any(), any());
+    }
+
+
+    @Test
+    void addBookingConflictTest() throws Exception {
+        BookingDto bookingDto = BookingDto
+                .builder()
+                .itemId(1L)
+                .start(LocalDateTime.of(2030, 1, 1, 1, 1).withNano(0))
+                .end(LocalDateTime.of(2030, 2, 1, 1, 1).withNano(0))
+                .build();
+        when(service.addBooking(1L, bookingDto))
+                .thenThrow(new ConflictException("Ошибка бронирования. Вещь уже забронирована на эти даты"));
+
+        mockMvc.perform(post("/bookings")
+                        .header("X-Sharer-User-Id", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(bookingDto)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Ошибка бронирования. Вещь уже забронирована на эти даты"));
+    }
+
+
+    @Test
+    void approveBookingsBatchTest() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(
+                BookingDecisionDto.builder().bookingId(1L).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(2L).approved(false).build());
+        when(service.approveAll(1L, decisions)).thenReturn(List.of(
+                BookingDecisionResultDto.builder().bookingId(1L).status(Status.APPROVED).build(),
+                BookingDecisionResultDto.builder().bookingId(2L).error("Ошибка изменения статуса").build()));
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(decisions)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bookingId").value(1L))
+                .andExpect(jsonPath("$[0].status").value("APPROVED"))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("Ошибка изменения статуса"));
+    }
+
+
+    @Test
+    void addBookingRetryWithIdempotencyKeyTest() throws Exception {
+        BookingDto bookingDto = BookingDto
+                .builder()
+                .itemId(1L)
+                .start(LocalDateTime.of(2030, 1, 1, 1, 1).withNano(0))
+                .end(LocalDateTime.of(2030, 2, 1, 1, 1).withNano(0))
+                .build();
+        BookingDto savedBookingDto = BookingDto
+                .builder()
+                .id(7L)
+                .status(Status.WAITING)
+                .itemId(1L)
+                .start(bookingDto.getStart())
+                .end(bookingDto.getEnd())
+                .build();
+        when(service.addBooking(1L, bookingDto)).thenReturn(savedBookingDto);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/bookings")
+                            .header("X-Sharer-User-Id", 1L)
+                            .header("Idempotency-Key", "retry-key")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(bookingDto)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(7L));
+        }
+
+        verify(service, times(1)).addBooking(1L, bookingDto);
+    }
 }
@@ -0,0 +1,138 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.item.dto.ForItemBookingDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class BookingIntervalIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private BookingRepository bookingRepository;
+
+    private BookingIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        when(bookingRepository.getActiveIntervals(anyLong(), any(), any())).thenReturn(List.of());
+        index = new BookingIntervalIndex(1000, 16, bookingRepository);
+    }
+
+    @Test
+    void admitLoadsExistingBookingsTest() {
+        when(bookingRepository.getActiveIntervals(eq(1L), any(), any())).thenReturn(List.of(
+                new ForItemBookingDto(100L, START, START.plusDays(2), 7L)));
+
+        assertThrows(ConflictException.class,
+                () -> admit(1L, START.plusDays(1), START.plusDays(3)));
+        assertNotNull(admit(1L, START.plusDays(2), START.plusDays(3)).getId());
+        assertNotNull(admit(1L, START.minusDays(1), START).getId());
+        verify(bookingRepository, times(1)).getActiveIntervals(eq(1L), any(), any());
+    }
+
+    @Test
+    void releaseFreesDatesTest() {
+        Booking booking = admit(1L, START, START.plusDays(1));
+
+        index.release(booking);
+
+        assertNotNull(admit(1L, START, START.plusDays(1)).getId());
+    }
+
+    @Test
+    void manyIntervalsTest() {
+        for (int i = 0; i < 1000; i += 2) {
+            admit(1L, START.plusHours(i), START.plusHours(i + 1));
+        }
+
+        for (int i = 0; i < 1000; i += 2) {
+            int hour = i;
+            assertThrows(ConflictException.class,
+                    () -> admit(1L, START.plusHours(hour).plusMinutes(30),
+                            START.plusHours(hour + 1).plusMinutes(30)));
+        }
+        assertNotNull(admit(1L, START.plusHours(1), START.plusHours(2)).getId());
+    }
+
+    @Test
+    void concurrentAdmissionsForSameItemTest() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int shift = i;
+            futures.add(executor.submit(() -> {
+                ready.await();
+                try {
+                    admit(1L, START.plusHours(shift), START.plusDays(1).plusHours(shift));
+                    admitted.incrementAndGet();
+                } catch (ConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, admitted.get());
+        assertEquals(threads - 1, conflicts.get());
+    }
+
+    @Test
+    void concurrentAdmissionsForDifferentItemsTest() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Booking>> futures = new ArrayList<>();
+        for (long itemId = 1; itemId <= threads; itemId++) {
+            long id = itemId;
+            futures.add(executor.submit(() -> admit(id, START, START.plusDays(1))));
+        }
+        for (Future<Booking> future : futures) {
+            assertNotNull(future.get(10, TimeUnit.SECONDS).getId());
+        }
+        executor.shutdown();
+    }
+
+    private Booking admit(Long itemId, LocalDateTime start, LocalDateTime end) {
+        Booking booking = Booking.builder()
+                .item(Item.builder().id(itemId).build())
+                .start(start)
+                .end(end)
+                .build();
+        return index.admit(booking, () -> {
+            booking.setId(ids.incrementAndGet());
+            return booking;
+        });
+    }
+}
@@ -1,6 +1,8 @@
 package ru.practicum.shareit;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,14 +10,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingServiceImpl;
+import ru.practicum.shareit.booking.BookingTimeline;
 import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
 import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.user.User;
 
 import javax.persistence.EntityManager;
@@ -34,6 +43,10 @@ public class BookingServiceImplTest {
 
     private final BookingServiceImpl service;
 
+    private final BookingTimeline bookingTimeline;
+
+    private final BookingRepository bookingRepository;
+
     private User user1;
 
     private User user2;
@@ -1435,4 +1448,295 @@ public class BookingServiceImplTest {
                 "Индекс первого элемента, начиная с 0, и количество элементов для отображения - " +
                 "положительные числа");
     }
+
+    @Test
+    void getOwnerBookingsByCursorTest() {
+        for (int i = 1; i <= 3; i++) {
+            Booking booking = Booking.builder()
+                    .start(LocalDateTime.now().plusDays(i))
+                    .end(LocalDateTime.now().plusDays(i).plusHours(1))
+                    .status(Status.WAITING)
+                    .booker(user2)
+                    .item(item)
+                    .build();
+            em.persist(booking);
+        }
+
+        CursorPage<BookingDtoResponse> firstPage = service.getOwnerBookingsByCursor(user1.getId(), "FUTURE", "", 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertNotNull(firstPage.getNextCursor());
+        assertTrue(firstPage.getItems().get(0).getStart().isAfter(firstPage.getItems().get(1).getStart()));
+
+        CursorPage<BookingDtoResponse> secondPage = service.getOwnerBookingsByCursor(user1.getId(), "FUTURE",
+                firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertNull(secondPage.getNextCursor());
+        assertTrue(firstPage.getItems().get(1).getStart().isAfter(secondPage.getItems().get(0).getStart()));
+        assertEquals(0, service.getUserBookingsByCursor(user2.getId(), "PAST", null, 2).getItems().size());
+        assertThrows(BadRequestException.class,
+                () -> service.getUserBookingsByCursor(user2.getId(), "ALL", "not a cursor", 2));
+        assertThrows(BadRequestException.class,
+                () -> service.getUserBookingsByCursor(user2.getId(), "ALL", "", 0));
+        assertThrows(BadRequestException.class,
+                () -> service.getOwnerBookingsByCursor(user1.getId(), "ALL", Cursor.of(5L).encode(), 2));
+    }
+
+
+    @Test
+    void bookingTimelineUpdatedOnAddBookingTest() {
+        LocalDateTime now = LocalDateTime.now();
+        assertNull(bookingTimeline.getNextBooking(item.getId(), now));
+
+        BookingDto first = service.addBooking(user2.getId(), BookingDto.builder()
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .itemId(item.getId())
+                .build());
+        BookingDto second = service.addBooking(user2.getId(), BookingDto.builder()
+                .start(now.plusDays(3))
+                .end(now.plusDays(4))
+                .itemId(item.getId())
+                .build());
+
+        assertEquals(second.getId(), bookingTimeline.getNextBooking(item.getId(), now).getId());
+        assertNull(bookingTimeline.getLastBooking(item.getId(), now));
+        assertEquals(first.getId(), bookingTimeline.getLastBooking(item.getId(), now.plusDays(5)).getId());
+        assertEquals(user2.getId(), bookingTimeline.getLastBooking(item.getId(), now.plusDays(5)).getBookerId());
+    }
+
+
+    @Test
+    void addBookingOverlappingTest() {
+        LocalDateTime now = LocalDateTime.now();
+        BookingDto first = service.addBooking(user2.getId(), BookingDto.builder()
+                .start(now.plusDays(1))
+                .end(now.plusDays(3))
+                .itemId(item.getId())
+                .build());
+        BookingDto overlapping = BookingDto.builder()
+                .start(now.plusDays(2))
+                .end(now.plusDays(3))
+                .itemId(item.getId())
+                .build();
+
+        assertThrows(ConflictException.class, () -> service.addBooking(user2.getId(), overlapping));
+
+        BookingDto adjacent = service.addBooking(user2.getId(), BookingDto.builder()
+                .start(now.plusDays(3))
+                .end(now.plusDays(5))
+                .itemId(item.getId())
+                .build());
+        assertNotNull(adjacent.getId());
+
+        service.approve(user1.getId(), first.getId(), false);
+
+        assertNotNull(service.addBooking(user2.getId(), overlapping).getId());
+        assertThrows(ConflictException.class, () -> service.approve(user1.getId(), first.getId(), true));
+    }
+
+
+    @Test
+    void approveOverlappingBookingTest() {
+        LocalDateTime now = LocalDateTime.now();
+        Booking first = Booking.builder()
+                .start(now.plusDays(1))
+                .end(now.plusDays(3))
+                .status(Status.WAITING)
+                .booker(user2)
+                .item(item)
+                .build();
+        em.persist(first);
+        Booking second = Booking.builder()
+                .start(now.plusDays(2))
+                .end(now.plusDays(4))
+                .status(Status.WAITING)
+                .booker(user2)
+                .item(item)
+                .build();
+        em.persist(second);
+
+        assertEquals(Status.APPROVED, service.approve(user1.getId(), first.getId(), true).getStatus());
+        assertThrows(ConflictException.class, () -> service.approve(user1.getId(), second.getId(), true));
+        assertEquals(Status.REJECTED, service.approve(user1.getId(), second.getId(), false).getStatus());
+    }
+
+
+    @Test
+    void getOwnerBookingsStatementCountIndependentOfRowsTest() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        persistBookingsOfNewBookers(2);
+        service.getOwnerBookings(user1.getId(), "ALL", null, null); // прогрев кэша пользователей
+
+        statistics.clear();
+        assertEquals(2, service.getOwnerBookings(user1.getId(), "ALL", 0, 10).size());
+        long statementsForTwo = statistics.getPrepareStatementCount();
+
+        persistBookingsOfNewBookers(5);
+        statistics.clear();
+        assertEquals(7, service.getOwnerBookings(user1.getId(), "ALL", 0, 10).size());
+
+        assertEquals(statementsForTwo, statistics.getPrepareStatementCount());
+    }
+
+    // у каждой брони свой букер и своя вещь - чтобы при ленивой загрузке каждая строка давала отдельные запросы
+    private void persistBookingsOfNewBookers(int count) {
+        for (int i = 0; i < count; i++) {
+            User booker = new User();
+            booker.setName("booker");
+            booker.setEmail("booker" + System.nanoTime() + "@email.ru");
+            em.persist(booker);
+            Item ownerItem = new Item();
+            ownerItem.setName("item");
+            ownerItem.setDescription("item descr");
+            ownerItem.setOwnerId(user1.getId());
+            ownerItem.setAvailable(true);
+            em.persist(ownerItem);
+            em.persist(Booking.builder()
+                    .start(LocalDateTime.now().plusDays(i + 1))
+                    .end(LocalDateTime.now().plusDays(i + 2))
+                    .status(Status.WAITING)
+                    .booker(booker)
+                    .item(ownerItem)
+                    .build());
+        }
+        em.flush();
+        em.clear();
+    }
+
+
+    @Test
+    void addBookingWritesOnlyBookingRowTest() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        LocalDateTime now = LocalDateTime.now();
+        service.addBooking(user2.getId(), BookingDto.builder() // прогрев кэшей и индекса интервалов вещи
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .itemId(item.getId())
+                .build());
+
+        statistics.clear();
+        BookingDto bookingDto = service.addBooking(user2.getId(), BookingDto.builder()
+                .start(now.plusDays(3))
+                .end(now.plusDays(4))
+                .itemId(item.getId())
+                .build());
+        em.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount()); // только insert брони
+        assertEquals(user2.getName(), bookingDto.getBooker().getName());
+        assertEquals(item.getName(), bookingDto.getItem().getName());
+    }
+
+
+    @Test
+    void approveWhenStatusChangedConcurrentlyTest() {
+        Booking booking = Booking.builder()
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .status(Status.WAITING)
+                .booker(user2)
+                .item(item)
+                .build();
+        em.persist(booking);
+        em.flush();
+
+        // параллельный запрос уже подтвердил бронь, пока эта версия была прочитана со статусом WAITING
+        assertEquals(1, bookingRepository.updateStatus(booking.getId(), Status.WAITING, Status.APPROVED));
+        assertEquals(0, bookingRepository.updateStatus(booking.getId(), Status.WAITING, Status.APPROVED));
+        assertThrows(ConflictException.class, () -> service.approve(user1.getId(), booking.getId(), false));
+
+        em.clear();
+        Booking bookingBase = em.find(Booking.class, booking.getId());
+        assertEquals(Status.APPROVED, bookingBase.getStatus());
+        assertEquals(1L, bookingBase.getVersion());
+    }
+
+
+    @Test
+    void approveAllTest() {
+        LocalDateTime now = LocalDateTime.now();
+        Booking waitingToApprove = Booking.builder()
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .status(Status.WAITING)
+                .booker(user2)
+                .item(item)
+                .build();
+        em.persist(waitingToApprove);
+        Booking waitingToReject = Booking.builder()
+                .start(now.plusDays(3))
+                .end(now.plusDays(4))
+                .status(Status.WAITING)
+                .booker(user2)
+                .item(item)
+                .build();
+        em.persist(waitingToReject);
+        Booking approved = Booking.builder()
+                .start(now.plusDays(5))
+                .end(now.plusDays(6))
+                .status(Status.APPROVED)
+                .booker(user2)
+                .item(item)
+                .build();
+        em.persist(approved);
+        long missingId = approved.getId() + 100;
+
+        List<BookingDecisionResultDto> results = service.approveAll(user1.getId(), List.of(
+                BookingDecisionDto.builder().bookingId(waitingToApprove.getId()).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(missingId).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(waitingToReject.getId()).approved(false).build(),
+                BookingDecisionDto.builder().bookingId(approved.getId()).approved(false).build()));
+
+        assertEquals(4, results.size());
+        assertEquals(Status.APPROVED, results.get(0).getStatus());
+        assertEquals(missingId, results.get(1).getBookingId());
+        assertNotNull(results.get(1).getError());
+        assertEquals(Status.REJECTED, results.get(2).getStatus());
+        assertNotNull(results.get(3).getError());
+
+        em.clear();
+        assertEquals(Status.APPROVED, em.find(Booking.class, waitingToApprove.getId()).getStatus());
+        assertEquals(Status.REJECTED, em.find(Booking.class, waitingToReject.getId()).getStatus());
+        assertEquals(Status.APPROVED, em.find(Booking.class, approved.getId()).getStatus());
+        // бронь чужой вещи для user2 не найдется
+        assertNotNull(service.approveAll(user2.getId(), List.of(
+                BookingDecisionDto.builder().bookingId(waitingToReject.getId()).approved(true).build()))
+                .get(0)
+                .getError());
+    }
+
+    @Test
+    void approveAllDuplicateIdsTest() {
+        List<BookingDecisionDto> decisions = List.of(
+                BookingDecisionDto.builder().bookingId(1L).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(1L).approved(false).build());
+
+        assertThrows(BadRequestException.class, () -> service.approveAll(user1.getId(), decisions));
+        assertThrows(BadRequestException.class, () -> service.approveAll(user1.getId(), List.of()));
+    }
+
+
+    @Test
+    void addBookingColdAdmissionInOneQueryTest() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        em.flush();
+        statistics.clear();
+
+        BookingDto bookingDto = service.addBooking(user2.getId(), BookingDto.builder()
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .itemId(item.getId())
+                .build());
+        em.flush();
+
+        // вещь и букер одним запросом, загрузка дерева интервалов новой вещи и insert брони
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(user2.getName(), bookingDto.getBooker().getName());
+        assertEquals(item.getOwnerId(), bookingDto.getItem().getOwnerId());
+    }
 }
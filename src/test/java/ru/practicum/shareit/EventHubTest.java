@@ -0,0 +1,128 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.events.EventController;
+import ru.practicum.shareit.events.EventHub;
+import ru.practicum.shareit.events.EventType;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+public class EventHubTest {
+
+    private static final int BUFFER_SIZE = 2;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EventHub eventHub;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        UserCache userCache = mock(UserCache.class);
+        when(userCache.get(1L)).thenReturn(new User());
+        meterRegistry = new SimpleMeterRegistry();
+        eventHub = new EventHub(BUFFER_SIZE, Duration.ofMinutes(1), 1, userCache, meterRegistry);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EventController(eventHub)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventHub.shutdown();
+    }
+
+    @Test
+    void publishSendsEventToSubscriberTest() throws Exception {
+        MvcResult result = subscribe();
+        assertTrue(eventHub.hasSubscribers());
+
+        eventHub.publish(1L, EventType.BOOKING_DECIDED, decision(7L));
+        eventHub.publish(2L, EventType.BOOKING_DECIDED, decision(8L)); // у пользователя 2 нет подписки
+
+        assertEquals(List.of(7L), awaitBookingIds(result, 7L));
+        assertTrue(result.getResponse().getContentAsString().contains("event:BOOKING_DECIDED"));
+    }
+
+    @Test
+    void slowSubscriberLosesOldestEventsTest() throws Exception {
+        MvcResult result = subscribe();
+        int published = 1000;
+
+        for (long i = 1; i <= published; i++) {
+            eventHub.publish(1L, EventType.BOOKING_DECIDED, decision(i));
+        }
+
+        List<Long> received = awaitBookingIds(result, (long) published);
+        long dropped = (long) meterRegistry.counter("shareit.events.dropped").count();
+        assertEquals(published, received.size() + dropped); // каждое событие либо доставлено, либо отброшено
+        assertEquals(received.stream().sorted().collect(Collectors.toList()), received);
+        assertEquals((long) published, received.get(received.size() - 1)); // новое событие не теряется
+    }
+
+    @Test
+    void subscribeUnknownUserTest() {
+        assertThrows(NotFoundException.class, () -> eventHub.subscribe(3L));
+        assertFalse(eventHub.hasSubscribers());
+    }
+
+    private MvcResult subscribe() throws Exception {
+        return mockMvc.perform(get("/events")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    // события отправляются из отдельного потока - ждем, пока в ответ не попадет бронь lastBookingId
+    private List<Long> awaitBookingIds(MvcResult result, Long lastBookingId) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Long> bookingIds;
+        do {
+            bookingIds = new ArrayList<>();
+            String content = result.getResponse().getContentAsString();
+            // событие завершается пустой строкой - недописанное последнее событие не разбираем
+            for (String line : content.substring(0, content.lastIndexOf("\n\n") + 1).split("\n")) {
+                if (line.startsWith("data:")) {
+                    bookingIds.add(mapper.readTree(line.substring("data:".length())).get("bookingId").asLong());
+                }
+            }
+            if (bookingIds.contains(lastBookingId)) {
+                return bookingIds;
+            }
+            Thread.sleep(10);
+        } while (System.currentTimeMillis() < deadline);
+        fail("Событие с бронью " + lastBookingId + " не получено");
+        return bookingIds;
+    }
+
+    private static BookingDecisionResultDto decision(Long bookingId) {
+        return BookingDecisionResultDto.builder()
+                .bookingId(bookingId)
+                .status(Status.APPROVED)
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingServiceImpl;
+import ru.practicum.shareit.booking.ExpiredBookingSweeper;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "shareit.booking-sweeper.batch-size=2")
+@Transactional
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ExpiredBookingSweeperTest {
+
+    private final EntityManager em;
+
+    private final ExpiredBookingSweeper sweeper;
+
+    private final BookingServiceImpl bookingService;
+
+    private final BookingRepository bookingRepository;
+
+    private final BookingIntervalIndex bookingIntervalIndex;
+
+    private User owner;
+
+    private User booker;
+
+    private Item item;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = new User();
+        owner.setName("owner");
+        owner.setEmail("owner@email.ru");
+        em.persist(owner);
+
+        booker = new User();
+        booker.setName("booker");
+        booker.setEmail("booker@email.ru");
+        em.persist(booker);
+
+        item = new Item();
+        item.setName("item");
+        item.setDescription("item descr");
+        item.setOwnerId(owner.getId());
+        item.setAvailable(true);
+        em.persist(item);
+    }
+
+    @Test
+    void sweepCancelsOnlyExpiredWaitingBookingsTest() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> expired = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) { // больше одной пачки
+            expired.add(persist(now.minusDays(i), now.plusDays(i), Status.WAITING));
+        }
+        Booking future = persist(now.plusDays(1), now.plusDays(2), Status.WAITING);
+        Booking approved = persist(now.minusDays(1), now.plusDays(1), Status.APPROVED);
+
+        sweeper.sweep();
+
+        em.clear();
+        expired.forEach(booking ->
+                assertEquals(Status.CANCELED, em.find(Booking.class, booking.getId()).getStatus()));
+        assertEquals(Status.WAITING, em.find(Booking.class, future.getId()).getStatus());
+        assertEquals(Status.APPROVED, em.find(Booking.class, approved.getId()).getStatus());
+    }
+
+    @Test
+    void sweepCountsCanceledBookingsAndFreesTheirDatesTest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExpiredBookingSweeper countedSweeper = new ExpiredBookingSweeper(2, bookingRepository, bookingIntervalIndex,
+                meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= 3; i++) {
+            persist(now.minusDays(i), now.plusDays(2), Status.WAITING);
+        }
+        em.flush();
+        BookingDto bookingDto = BookingDto.builder()
+                .start(now.plusHours(1))
+                .end(now.plusDays(1))
+                .itemId(item.getId())
+                .build();
+        // дерево вещи загружено с ожидающими бронями - даты заняты
+        assertThrows(ConflictException.class, () -> bookingService.addBooking(booker.getId(), bookingDto));
+
+        countedSweeper.sweep();
+
+        assertEquals(3.0, meterRegistry.counter("shareit.booking.sweeper.canceled").count());
+        assertNotNull(bookingService.addBooking(booker.getId(), bookingDto).getId());
+    }
+
+    @Test
+    void sweptBookingCannotBeApprovedTest() {
+        LocalDateTime now = LocalDateTime.now();
+        Booking expired = persist(now.minusDays(1), now.plusDays(1), Status.WAITING);
+
+        sweeper.sweep();
+        em.clear();
+
+        assertThrows(BadRequestException.class, () -> bookingService.approve(owner.getId(), expired.getId(), true));
+        List<BookingDecisionResultDto> results = bookingService.approveAll(owner.getId(),
+                List.of(BookingDecisionDto.builder().bookingId(expired.getId()).approved(true).build()));
+        assertNull(results.get(0).getStatus());
+        assertNotNull(results.get(0).getError());
+
+        em.clear();
+        assertEquals(Status.CANCELED, em.find(Booking.class, expired.getId()).getStatus());
+    }
+
+    private Booking persist(LocalDateTime start, LocalDateTime end, Status status) {
+        Booking booking = Booking.builder()
+                .start(start)
+                .end(end)
+                .status(status)
+                .booker(booker)
+                .item(item)
+                .build();
+        em.persist(booking);
+        return booking;
+    }
+}
@@ -7,8 +7,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.idempotency.LocalIdempotencyStore;
 import ru.practicum.shareit.item.ItemController;
 import ru.practicum.shareit.item.ItemService;
 import ru.practicum.shareit.item.dto.CommentDto;
@@ -23,6 +25,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ItemController.class)
+@Import(LocalIdempotencyStore.class)
 @AutoConfigureMockMvc
 public class ItemControllerTest {
 
@@ -145,6 +148,27 @@ public class ItemControllerTest {
                 .andExpect(content().json(mapper.writeValueAsString(List.of(itemDto))));
     }
 
+    @Test
+    void findItemsByTextRanked() throws Exception {
+        ItemDto itemDto = ItemDto.builder()
+                .id(1L)
+                .name("name")
+                .description("descr")
+                .available(true)
+                .build();
+
+        when(itemService.findItemsByTextRanked("name", 0, 20)).thenReturn(List.of(itemDto));
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "name")
+                        .param("from", "0")
+                        .param("size", "20")
+                        .param("ranked", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(List.of(itemDto))));
+        verify(itemService, never()).findItemsByText(anyString(), any(), any());
+    }
+
     @Test
     void addComment() throws Exception {
         CommentDto commentDto = CommentDto.builder()
@@ -1,6 +1,7 @@
 package ru.practicum.shareit;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,12 +13,14 @@ import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.ItemSearchRanker;
 import ru.practicum.shareit.item.ItemServiceImpl;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.model.GetRequestInfo;
 import ru.practicum.shareit.user.User;
 
@@ -25,7 +28,9 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,6 +44,10 @@ public class ItemServiceImplTest {
 
     private final ItemServiceImpl service;
 
+    private final MeterRegistry meterRegistry;
+
+    private final ItemSearchRanker itemSearchRanker;
+
     private User user;
 
     @BeforeEach
@@ -428,6 +437,70 @@ public class ItemServiceImplTest {
     }
 
 
+    @Test
+    void findAllUserItemsWithBookingsAndCommentsTest() {
+        ItemDto itemDto = ItemDto.builder()
+                .name("It.name")
+                .description("description")
+                .available(true)
+                .build();
+        itemDto = service.addItem(user.getId(), itemDto);
+
+        ItemDto itemDto2 = ItemDto.builder()
+                .name("lalala")
+                .description("descripsdasdastion")
+                .available(true)
+                .build();
+        itemDto2 = service.addItem(user.getId(), itemDto2);
+        Item item = em.find(Item.class, itemDto.getId());
+
+        User user2 = new User();
+        user2.setName("name2");
+        user2.setEmail("mail2@email.ru");
+        em.persist(user2);
+
+        Booking lastBooking = Booking.builder()
+                .start(LocalDateTime.now().minusDays(10))
+                .end(LocalDateTime.now().minusDays(5))
+                .booker(user2)
+                .status(Status.APPROVED)
+                .item(item)
+                .build();
+        em.persist(lastBooking);
+
+        Booking nextBooking = Booking.builder()
+                .start(LocalDateTime.now().plusDays(5))
+                .end(LocalDateTime.now().plusDays(10))
+                .booker(user2)
+                .status(Status.WAITING)
+                .item(item)
+                .build();
+        em.persist(nextBooking);
+
+        Comment comment = Comment.builder()
+                .text("text")
+                .author(user2)
+                .item(item)
+                .created(LocalDateTime.now())
+                .build();
+        em.persist(comment);
+
+        List<ItemDtoWithBooking> items = service.findAllUserItems(GetRequestInfo.of(user.getId(), null, null));
+
+        assertEquals(2, items.size());
+        assertEquals(itemDto.getId(), items.get(0).getId());
+        assertEquals(lastBooking.getId(), items.get(0).getLastBooking().getId());
+        assertEquals(user2.getId(), items.get(0).getLastBooking().getBookerId());
+        assertEquals(nextBooking.getId(), items.get(0).getNextBooking().getId());
+        assertEquals(1, items.get(0).getComments().size());
+        assertEquals("name2", items.get(0).getComments().get(0).getAuthorName());
+        assertEquals(itemDto2.getId(), items.get(1).getId());
+        assertNull(items.get(1).getLastBooking());
+        assertNull(items.get(1).getNextBooking());
+        assertEquals(List.of(), items.get(1).getComments());
+    }
+
+
     @Test
     void addCommentCorrect() {
         Item item = Item.builder()
@@ -651,6 +724,153 @@ public class ItemServiceImplTest {
 
     }
 
+    @Test
+    void findItemsByTextAfterUpdateTest() {
+        ItemDto itemDto = ItemDto.builder()
+                .name("Drill")
+                .description("description")
+                .available(true)
+                .build();
+        itemDto = service.addItem(user.getId(), itemDto);
+
+        ItemDto itemDto2 = ItemDto.builder()
+                .name("Hammer")
+                .description("big hammer")
+                .available(true)
+                .build();
+        itemDto2 = service.addItem(user.getId(), itemDto2);
+
+        assertEquals(1, service.findItemsByText("rill", null, null).size());
+
+        service.updateItem(user.getId(), itemDto.getId(), ItemDto.builder().name("Screwdriver").build());
+        service.updateItem(user.getId(), itemDto2.getId(), ItemDto.builder().available(false).build());
+
+        assertEquals(0, service.findItemsByText("rill", null, null).size());
+        assertEquals(0, service.findItemsByText("hammer", null, null).size());
+        List<ItemDto> items = service.findItemsByText("screw", null, null);
+        assertEquals(1, items.size());
+        assertEquals(itemDto.getId(), items.get(0).getId());
+    }
+
+    @Test
+    void findItemsByTextRankedTest() {
+        ItemDto itemDto = ItemDto.builder()
+                .name("Toolbox")
+                .description("box with drill bits")
+                .available(true)
+                .build();
+        itemDto = service.addItem(user.getId(), itemDto);
+
+        ItemDto itemDto2 = ItemDto.builder()
+                .name("Drill")
+                .description("cordless drill")
+                .available(true)
+                .build();
+        itemDto2 = service.addItem(user.getId(), itemDto2);
+
+        List<ItemDto> items = service.findItemsByTextRanked("drill", null, null);
+
+        assertEquals(2, items.size());
+        assertEquals(itemDto2.getId(), items.get(0).getId());
+        assertEquals(itemDto.getId(), items.get(1).getId());
+
+        items = service.findItemsByTextRanked("drill", 1, 1);
+
+        assertEquals(1, items.size());
+        assertEquals(itemDto.getId(), items.get(0).getId());
+        assertThrows(BadRequestException.class, () -> service.findItemsByTextRanked("drill", -1, 0));
+    }
+
+    @Test
+    void findItemsByTextRankedBoundaryPagingTest() {
+        service.addItem(user.getId(), ItemDto.builder()
+                .name("Drill")
+                .description("cordless drill")
+                .available(true)
+                .build());
+
+        assertThrows(BadRequestException.class, () -> service.findItemsByTextRanked("drill", 5, 0));
+        assertTrue(service.findItemsByTextRanked("drill", Integer.MAX_VALUE - 1, 10).isEmpty());
+    }
+
+    @Test
+    void findItemsByTextRankedInvalidatedByUnmatchedItemTest() {
+        ItemDto itemDto = service.addItem(user.getId(), ItemDto.builder()
+                .name("Red drill")
+                .description("red")
+                .available(true)
+                .build());
+        ItemDto itemDto2 = service.addItem(user.getId(), ItemDto.builder()
+                .name("Drill")
+                .description("red drill drill")
+                .available(true)
+                .build());
+
+        assertEquals(2, service.findItemsByTextRanked("red drill", null, null).size());
+
+        // новая вещь не подходит под текст поиска, но меняет частоты слов - ранжированный результат сбрасывается
+        service.addItem(user.getId(), ItemDto.builder()
+                .name("Red box")
+                .description("red")
+                .available(true)
+                .build());
+        double misses = meterRegistry.get("cache.gets").tag("cache", "itemSearch").tag("result", "miss")
+                .functionCounter().count();
+        List<ItemDto> items = service.findItemsByTextRanked("red drill", null, null);
+
+        assertEquals(misses + 1, meterRegistry.get("cache.gets").tag("cache", "itemSearch").tag("result", "miss")
+                .functionCounter().count());
+        // порядок - тот, что дают частоты слов после изменения, независимо от остальных вещей в базе
+        ItemSearchRanker.Ranking ranking = itemSearchRanker.startRanking("red drill", 2);
+        ranking.offer(em.find(Item.class, itemDto.getId()));
+        ranking.offer(em.find(Item.class, itemDto2.getId()));
+        assertEquals(ranking.result().stream().map(Item::getId).collect(Collectors.toList()),
+                items.stream().map(ItemDto::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void findItemsByTextSkipsIndexFalsePositivesTest() {
+        // у вещи есть все триграммы запроса "abcd", но не сама подстрока
+        service.addItem(user.getId(), ItemDto.builder()
+                .name("abc")
+                .description("bcd")
+                .available(true)
+                .build());
+
+        assertTrue(service.findItemsByText("abcd", null, null).isEmpty());
+        assertEquals(1, service.findItemsByText("abc", null, null).size());
+    }
+
+    @Test
+    void findItemsByTextCachedAndInvalidatedTest() {
+        ItemDto itemDto = ItemDto.builder()
+                .name("Ladder")
+                .description("description")
+                .available(true)
+                .build();
+        itemDto = service.addItem(user.getId(), itemDto);
+        double hits = meterRegistry.get("cache.gets").tag("cache", "itemSearch").tag("result", "hit")
+                .functionCounter().count();
+
+        assertEquals(1, service.findItemsByText("ladder", null, null).size());
+        assertEquals(1, service.findItemsByText("LADDER", null, null).size());
+        assertEquals(hits + 1, meterRegistry.get("cache.gets").tag("cache", "itemSearch").tag("result", "hit")
+                .functionCounter().count());
+
+        ItemDto itemDto2 = ItemDto.builder()
+                .name("Step ladder")
+                .description("description")
+                .available(true)
+                .build();
+        service.addItem(user.getId(), itemDto2);
+
+        assertEquals(2, service.findItemsByText("ladder", null, null).size());
+
+        service.updateItem(user.getId(), itemDto.getId(), ItemDto.builder().available(false).build());
+
+        assertEquals(1, service.findItemsByText("ladder", null, null).size());
+    }
+
     @Test
     void findItemsByTextBadFromOrSizeTest() {
         ItemDto itemDto = ItemDto.builder()
@@ -704,5 +924,72 @@ public class ItemServiceImplTest {
 
     }
 
+    @Test
+    void findAllUserItemsByCursorTest() {
+        for (int i = 1; i <= 3; i++) {
+            service.addItem(user.getId(), ItemDto.builder()
+                    .name("item" + i)
+                    .description("description")
+                    .available(true)
+                    .build());
+        }
+
+        CursorPage<ItemDtoWithBooking> firstPage = service.findAllUserItemsByCursor(user.getId(), "", 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals("item1", firstPage.getItems().get(0).getName());
+        assertEquals(List.of(), firstPage.getItems().get(0).getComments());
+        assertNotNull(firstPage.getNextCursor());
+
+        CursorPage<ItemDtoWithBooking> secondPage = service.findAllUserItemsByCursor(user.getId(),
+                firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals("item3", secondPage.getItems().get(0).getName());
+        assertNull(secondPage.getNextCursor());
+    }
+
+
+    @Test
+    void streamUserItemsTest() {
+        for (int i = 1; i <= 3; i++) {
+            service.addItem(user.getId(), ItemDto.builder()
+                    .name("item" + i)
+                    .description("description")
+                    .available(true)
+                    .build());
+        }
+        List<ItemDtoWithBooking> expected = service.findAllUserItems(GetRequestInfo.of(user.getId(), null, null));
+
+        List<ItemDtoWithBooking> streamed = new ArrayList<>();
+        service.streamUserItems(user.getId()).forEachRow(streamed::add);
+
+        assertEquals(3, streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), streamed.get(i).getId());
+            assertEquals(expected.get(i).getName(), streamed.get(i).getName());
+            assertEquals(List.of(), streamed.get(i).getComments());
+        }
+    }
+
 
+    @Test
+    void findItemByIdCachedAndRefreshedAfterUpdateTest() {
+        ItemDto itemDto = service.addItem(user.getId(), ItemDto.builder()
+                .name("Saw")
+                .description("description")
+                .available(true)
+                .build());
+        double hits = meterRegistry.get("cache.gets").tag("cache", "items").tag("result", "hit")
+                .functionCounter().count();
+
+        assertEquals("Saw", service.findItemById(user.getId(), itemDto.getId()).getName());
+        assertEquals("Saw", service.findItemById(user.getId(), itemDto.getId()).getName());
+        assertEquals(hits + 1, meterRegistry.get("cache.gets").tag("cache", "items").tag("result", "hit")
+                .functionCounter().count());
+
+        service.updateItem(user.getId(), itemDto.getId(), ItemDto.builder().name("Jigsaw").build());
+
+        assertEquals("Jigsaw", service.findItemById(user.getId(), itemDto.getId()).getName());
+    }
 }
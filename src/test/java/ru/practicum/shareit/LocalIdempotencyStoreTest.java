@@ -0,0 +1,75 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.idempotency.LocalIdempotencyStore;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalIdempotencyStoreTest {
+
+    private final LocalIdempotencyStore store =
+            new LocalIdempotencyStore(100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+
+    @Test
+    void concurrentDuplicateWaitsForFirstResultTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> store.execute("key", "body", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 1L;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Long> duplicate = executor.submit(() -> store.execute("key", "body", () -> {
+                calls.incrementAndGet();
+                return 2L;
+            }));
+            Thread.sleep(100); // повтор уже ждет первый запрос
+            release.countDown();
+
+            assertEquals(1L, first.get(5, TimeUnit.SECONDS));
+            assertEquals(1L, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedActionReleasesKeyTest() {
+        assertThrows(IllegalStateException.class, () -> store.execute("key", "body", () -> {
+            throw new IllegalStateException();
+        }));
+
+        assertEquals("ok", store.execute("key", "body", () -> "ok"));
+        assertEquals("ok", store.execute("key", "body", () -> "again"));
+    }
+
+    @Test
+    void sameKeyDifferentRequestTest() {
+        store.execute("key", "body", () -> "ok");
+
+        assertThrows(BadRequestException.class, () -> store.execute("key", "other body", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -95,5 +95,18 @@ public class RequestControllerTest {
                 .andExpect(jsonPath("$.description").value(requestDto.getDescription()));
     }
 
+    @Test
+    void getMatchingRequestsTest() throws Exception {
+        RequestDto requestDto = RequestDto.builder()
+                .id(1L)
+                .description("descr")
+                .build();
+        when(service.getMatchingRequests(1L)).thenReturn(List.of(requestDto));
 
+        mockMvc.perform(get("/requests/matching")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(List.of(requestDto))));
+        verify(service, never()).getRequestById(anyLong(), anyLong());
+    }
 }
@@ -0,0 +1,109 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.RequestMatcher;
+import ru.practicum.shareit.request.RequestRepository;
+import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.user.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RequestMatcherTest {
+
+    private RequestRepository requestRepository;
+
+    private ItemRepository itemRepository;
+
+    private RequestMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        requestRepository = mock(RequestRepository.class);
+        itemRepository = mock(ItemRepository.class);
+        matcher = new RequestMatcher(requestRepository, itemRepository);
+    }
+
+    @Test
+    void itemMatchesOpenRequestsTest() {
+        matcher.index(request(1L, 10L, "Нужна дрель для ремонта"));
+        matcher.index(request(2L, 10L, "Ищу палатку"));
+        matcher.index(request(3L, 20L, "Дрель аккумуляторная"));
+
+        List<Long> matches = matcher.index(item(100L, 20L, "Дрель", "Ударная дрель, подходит для ремонта", null));
+
+        assertEquals(List.of(1L), matches); // свой запрос 3 и чужой про палатку не подходят
+        assertEquals(List.of(1L), matcher.matchRequests(20L));
+        assertEquals(List.of(100L), matcher.matchItems(10L, "Нужна дрель для ремонта"));
+        assertTrue(matcher.matchItems(20L, "Дрель аккумуляторная").isEmpty());
+    }
+
+    @Test
+    void answeredRequestAndUnavailableItemAreNotMatchedTest() {
+        matcher.index(request(1L, 10L, "Дрель"));
+        matcher.index(item(100L, 20L, "Дрель", "Ударная", null));
+
+        matcher.index(item(101L, 30L, "Дрель", "Простая", 1L));
+        assertTrue(matcher.matchRequests(20L).isEmpty());
+
+        matcher.index(item(100L, 20L, "Дрель", "Ударная", null, false));
+        assertTrue(matcher.matchItems(10L, "Дрель").contains(101L));
+        assertFalse(matcher.matchItems(10L, "Дрель").contains(100L));
+    }
+
+    @Test
+    void indexIsBuiltFromRepositoriesOnceTest() {
+        when(requestRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1000)))
+                .thenReturn(List.of(request(1L, 10L, "Велосипед горный"), request(2L, 10L, "Велосипед детский")));
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1000)))
+                .thenReturn(List.of(item(100L, 20L, "Велосипед", "Детский", 2L)));
+
+        assertEquals(List.of(1L), matcher.index(item(101L, 30L, "Велосипед", "Горный", null)));
+        assertEquals(List.of(1L), matcher.matchRequests(30L)); // на запрос 2 уже ответили вещью 100
+
+        verify(requestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+        verify(itemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+    }
+
+    @Test
+    void wordFormsAndStopWordsTest() {
+        matcher.index(item(100L, 20L, "Дрель", "Ударная", null));
+
+        assertEquals(List.of(100L), matcher.matchItems(10L, "Дрели!")); // другая форма слова
+        assertTrue(matcher.matchItems(10L, "Нужна для и на").isEmpty()); // только служебные слова
+    }
+
+    private static Request request(Long id, Long requesterId, String description) {
+        User requester = new User();
+        requester.setId(requesterId);
+        return Request.builder()
+                .id(id)
+                .requester(requester)
+                .description(description)
+                .build();
+    }
+
+    private static Item item(Long id, Long ownerId, String name, String description, Long requestId) {
+        return item(id, ownerId, name, description, requestId, true);
+    }
+
+    private static Item item(Long id, Long ownerId, String name, String description, Long requestId,
+                             Boolean available) {
+        return Item.builder()
+                .id(id)
+                .ownerId(ownerId)
+                .name(name)
+                .description(description)
+                .available(available)
+                .requestId(requestId)
+                .build();
+    }
+}
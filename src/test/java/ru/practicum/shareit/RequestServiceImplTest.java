@@ -2,6 +2,8 @@ package ru.practicum.shareit;
 
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,7 +12,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.ItemServiceImpl;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.RequestServiceImpl;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.model.GetRequestInfo;
@@ -21,7 +27,10 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +43,8 @@ public class RequestServiceImplTest {
 
     private final RequestServiceImpl requestService;
 
+    private final ItemServiceImpl itemService;
+
     private User user1;
 
     private User user2;
@@ -286,7 +297,8 @@ public class RequestServiceImplTest {
                 .description("Num1")
                 .build();
         em.persist(request);
-        Long badId = 22L;
+        // айди растут от теста к тесту - фиксированный айди мог достаться user1 или user2
+        Long badId = user2.getId() + 1;
 
         var a =
                 assertThrows(NotFoundException.class, () -> requestService.getRequestById(badId, request.getId()));
@@ -308,4 +320,152 @@ public class RequestServiceImplTest {
         assertEquals(a.getMessage(), "Запрос на вещь не найден");
     }
 
+    @Test
+    void getRequestsByCursorTest() {
+        for (int i = 1; i <= 3; i++) {
+            em.persist(Request.builder()
+                    .requester(user1)
+                    .created(LocalDateTime.now().minusHours(i))
+                    .description("Num" + i)
+                    .build());
+        }
+
+        CursorPage<RequestDto> firstPage = requestService.getRequestsByCursor(user2.getId(), "", 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals("Num1", firstPage.getItems().get(0).getDescription());
+        assertEquals("Num2", firstPage.getItems().get(1).getDescription());
+        assertNotNull(firstPage.getNextCursor());
+
+        CursorPage<RequestDto> secondPage = requestService.getRequestsByCursor(user2.getId(),
+                firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals("Num3", secondPage.getItems().get(0).getDescription());
+        assertNull(secondPage.getNextCursor());
+        assertEquals(0, requestService.getRequestsByCursor(user1.getId(), "", 2).getItems().size());
+        // курсор без времени (из списка вещей) не подходит для списка, упорядоченного по дате
+        assertThrows(BadRequestException.class,
+                () -> requestService.getRequestsByCursor(user2.getId(), Cursor.of(5L).encode(), 2));
+    }
+
+    @Test
+    void getRequestsByCursorWithSubMicrosecondCreatedTest() {
+        LocalDateTime created = LocalDateTime.now().minusHours(1).withNano(123_456_123);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Request request = Request.builder()
+                    .requester(user1)
+                    .created(created.minusMinutes(i))
+                    .description("Num" + i)
+                    .build();
+            em.persist(request);
+            ids.add(request.getId());
+        }
+
+        CursorPage<RequestDto> firstPage = requestService.getRequestsByCursor(user2.getId(), "", 1);
+        CursorPage<RequestDto> secondPage = requestService.getRequestsByCursor(user2.getId(),
+                firstPage.getNextCursor(), 2);
+
+        assertEquals(List.of(ids.get(0)), firstPage.getItems().stream().map(RequestDto::getId)
+                .collect(Collectors.toList()));
+        assertEquals(ids.subList(1, 3), secondPage.getItems().stream().map(RequestDto::getId)
+                .collect(Collectors.toList())); // граничный запрос первой страницы не повторяется
+    }
+
+    @Test
+    void getRequestsByCursorWithEqualCreatedTest() {
+        LocalDateTime created = LocalDateTime.now().minusHours(1).withNano(0);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Request request = Request.builder()
+                    .requester(user1)
+                    .created(created)
+                    .description("Num" + i)
+                    .build();
+            em.persist(request);
+            ids.add(request.getId());
+        }
+        Collections.reverse(ids);
+
+        List<Long> feed = new ArrayList<>();
+        String cursor = "";
+        do {
+            CursorPage<RequestDto> page = requestService.getRequestsByCursor(user2.getId(), cursor, 2);
+            page.getItems().forEach(requestDto -> feed.add(requestDto.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(ids, feed);
+    }
+
+
+    @Test
+    void getRequestsStatementCountIndependentOfPageTest() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        persistRequestsWithItems(1);
+        GetRequestInfo requestInfo = GetRequestInfo.of(user2.getId(), 0, 10);
+        requestService.getRequests(requestInfo); // прогрев кэша пользователей
+
+        statistics.clear();
+        assertEquals(1, requestService.getRequests(requestInfo).size());
+        long statementsForOne = statistics.getPrepareStatementCount();
+
+        persistRequestsWithItems(4);
+        statistics.clear();
+        List<RequestDto> requests = requestService.getRequests(requestInfo);
+
+        assertEquals(5, requests.size());
+        requests.forEach(request -> assertEquals(2, request.getItems().size()));
+        assertEquals(statementsForOne, statistics.getPrepareStatementCount());
+    }
+
+    // запросы user1, на каждый - по две вещи от user2
+    private void persistRequestsWithItems(int count) {
+        for (int i = 0; i < count; i++) {
+            Request request = Request.builder()
+                    .description("request")
+                    .requester(user1)
+                    .created(LocalDateTime.now())
+                    .build();
+            em.persist(request);
+            for (int j = 0; j < 2; j++) {
+                Item item = new Item();
+                item.setName("item");
+                item.setDescription("item descr");
+                item.setOwnerId(user2.getId());
+                item.setAvailable(true);
+                item.setRequestId(request.getId());
+                em.persist(item);
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void getMatchingRequestsAndItemsTest() {
+        RequestDto request = requestService.addRequest(user1.getId(), RequestDto.builder()
+                .description("Нужен перфоратор для бетона")
+                .build());
+        requestService.addRequest(user1.getId(), RequestDto.builder()
+                .description("Ищу байдарку")
+                .build());
+        ItemDto item = itemService.addItem(user2.getId(), ItemDto.builder()
+                .name("Перфоратор")
+                .description("Сверлит бетон и кирпич")
+                .available(true)
+                .build());
+
+        List<RequestDto> requests = requestService.getMatchingRequests(user2.getId());
+        assertEquals(1, requests.size());
+        assertEquals(request.getId(), requests.get(0).getId());
+        assertTrue(requestService.getMatchingRequests(user1.getId()).isEmpty());
+
+        List<ItemDto> items = requestService.getMatchingItems(user1.getId(), request.getId());
+        assertEquals(1, items.size());
+        assertEquals(item.getId(), items.get(0).getId());
+        assertThrows(NotFoundException.class, () -> requestService.getMatchingItems(user1.getId(), 999L));
+    }
 }
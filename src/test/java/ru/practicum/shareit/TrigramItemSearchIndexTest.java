@@ -0,0 +1,162 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.TrigramItemSearchIndex;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class TrigramItemSearchIndexTest {
+
+    private ItemRepository itemRepository;
+
+    private TrigramItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        index = new TrigramItemSearchIndex(itemRepository);
+    }
+
+    @Test
+    void longQueryCandidatesTest() {
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(2L, "Пила", "Дисковая", true));
+        index.index(item(3L, "abc", "bcd", true));
+
+        assertEquals(List.of(1L), index.search("дрель"));
+        assertEquals(List.of(1L), index.search("ДРЕЛЬ"));
+        assertEquals(List.of(2L), index.search("диско"));
+        assertTrue(index.search("дрели").isEmpty()); // триграммы "ели" нет ни у одной вещи
+        assertEquals(1, index.count("дрель"));
+        // все триграммы "abcd" есть у вещи 3, хотя самой подстроки нет: кандидат проверяется при загрузке из базы
+        assertEquals(List.of(3L), index.search("abcd"));
+    }
+
+    @Test
+    void shortQueryFallbackTest() {
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(2L, "Пила", "Дисковая", true));
+        index.index(item(3L, "Ящик", "Я", true));
+
+        // запрос короче триграммы ищется по всем триграммам, которые его содержат
+        assertEquals(List.of(1L), index.search("ре"));
+        assertEquals(List.of(1L, 2L), index.search("ая"));
+        assertEquals(List.of(3L), index.search("щ"));
+        assertEquals(List.of(1L, 2L, 3L), index.search("я")); // описание короче триграммы индексируется целиком
+        assertEquals(3, index.count("я")); // вещь из нескольких подходящих списков считается один раз
+        assertTrue(index.search("ю").isEmpty());
+    }
+
+    @Test
+    void searchAfterTest() {
+        for (long id = 1; id <= 5; id++) {
+            index.index(item(id, "Дрель " + id, "Описание", true));
+        }
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), index.search("дрель"));
+        assertEquals(List.of(3L, 4L), index.searchAfter("дрель", 2L, 2));
+        assertEquals(List.of(3L, 4L), index.searchAfter("др", 2L, 2));
+        assertTrue(index.searchAfter("дрель", 5L, 2).isEmpty());
+        assertEquals(5, index.count("дрель"));
+        assertEquals(5, index.count("др"));
+    }
+
+    @Test
+    void updateAndRemoveTest() {
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(2L, "Дрель", "Простая", true));
+
+        index.index(item(1L, "Пила", "Дисковая", true));
+
+        assertEquals(List.of(2L), index.search("дрель"));
+        assertEquals(List.of(1L), index.search("пила"));
+
+        index.index(item(1L, "Пила", "Дисковая", false)); // недоступная вещь пропадает из поиска
+
+        assertTrue(index.search("пила").isEmpty());
+        assertTrue(index.search("пи").isEmpty());
+        assertEquals(0, index.count("пила"));
+        assertEquals(List.of(2L), index.search("дрель"));
+    }
+
+    @Test
+    void indexIsBuiltFromRepositoryOnceTest() {
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1000)))
+                .thenReturn(List.of(item(1L, "Дрель", "Ударная", true), item(2L, "Дрель", "Простая", false)));
+
+        assertEquals(List.of(1L), index.search("дрель"));
+        assertEquals(1, index.count("дрель"));
+
+        verify(itemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+    }
+
+    @Test
+    void changesAreRevertedOnRollbackTest() {
+        index.index(item(1L, "Дрель", "Ударная", true));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.index(item(1L, "Пила", "Дисковая", true));
+            index.index(item(2L, "Лестница", "Складная", true));
+
+            // до завершения транзакции вещь 1 ищется и по старому, и по новому тексту
+            assertEquals(List.of(1L), index.search("дрель"));
+            assertEquals(List.of(1L), index.search("пила"));
+            assertEquals(List.of(2L), index.search("лестница"));
+
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(1L), index.search("дрель"));
+        assertTrue(index.search("пила").isEmpty());
+        assertTrue(index.search("лестница").isEmpty());
+    }
+
+    @Test
+    void changesAreAppliedOnCommitTest() {
+        index.index(item(1L, "Дрель", "Ударная", true));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.index(item(1L, "Пила", "Дисковая", true));
+            index.index(item(1L, "Пила", "Ручная", true)); // после коммита остается последнее изменение
+
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(index.search("дрель").isEmpty());
+        assertTrue(index.search("диско").isEmpty());
+        assertEquals(List.of(1L), index.search("ручная"));
+    }
+
+    private static void completeTransaction(int status) {
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                status);
+    }
+
+    private static Item item(Long id, String name, String description, Boolean available) {
+        return Item.builder()
+                .id(id)
+                .ownerId(1L)
+                .name(name)
+                .description(description)
+                .available(available)
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.user.UserExistenceFilter;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class UserExistenceFilterTest {
+
+    private UserRepository userRepository;
+
+    private UserExistenceFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        List<Long> firstBatch = LongStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList());
+        List<Long> secondBatch = LongStream.rangeClosed(1001, 1500).boxed().collect(Collectors.toList());
+        when(userRepository.getIdsAfter(0L, PageRequest.of(0, 1000))).thenReturn(firstBatch);
+        when(userRepository.getIdsAfter(1000L, PageRequest.of(0, 1000))).thenReturn(secondBatch);
+        filter = new UserExistenceFilter(userRepository);
+    }
+
+    @Test
+    void existsLoadsIdsOnceTest() {
+        assertTrue(filter.exists(1L));
+        assertTrue(filter.exists(1500L));
+        assertTrue(filter.exists(777L));
+
+        verify(userRepository, times(2)).getIdsAfter(anyLong(), any());
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void existsFallsBackToRepositoryTest() {
+        when(userRepository.existsById(2000L)).thenReturn(true);
+
+        assertTrue(filter.exists(2000L));
+        assertTrue(filter.exists(2000L));
+        assertFalse(filter.exists(3000L));
+        assertFalse(filter.exists(null));
+
+        verify(userRepository, times(1)).existsById(2000L);
+        verify(userRepository, times(1)).existsById(3000L);
+    }
+
+    @Test
+    void addAndRemoveTest() {
+        filter.add(2001L);
+        assertTrue(filter.exists(2001L));
+
+        for (long id = 1; id <= 1500; id += 2) {
+            filter.remove(id);
+        }
+
+        for (long id = 1; id <= 1500; id++) {
+            assertEquals(id % 2 == 0, filter.exists(id), "id " + id);
+        }
+        assertTrue(filter.exists(2001L));
+        verify(userRepository, never()).existsById(2001L);
+    }
+
+    @Test
+    void nonPositiveIdIsNotStoredTest() {
+        when(userRepository.existsById(0L)).thenReturn(true);
+
+        filter.add(0L);
+
+        assertTrue(filter.exists(0L)); // ответ из базы, а не из множества
+        verify(userRepository, times(1)).existsById(0L);
+    }
+}
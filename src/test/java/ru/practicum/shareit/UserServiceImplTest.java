@@ -1,15 +1,21 @@
 package ru.practicum.shareit;
 
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.user.UserExistenceFilter;
 import ru.practicum.shareit.user.UserMapper;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.UserServiceImpl;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.persistence.EntityManager;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,7 +36,10 @@ public class UserServiceImplTest {
         userRepository = mock(UserRepository.class);
         when(userRepository.save(any())).then(invocation -> invocation.getArgument(0));
         userMapper = new UserMapper();
-        userService = new UserServiceImpl(userRepository, userMapper);
+        userService = new UserServiceImpl(userRepository, userMapper, mock(TransactionTemplate.class),
+                mock(EntityManager.class),
+                new UserCache(100, Duration.ofMinutes(1), userRepository, new SimpleMeterRegistry()),
+                new UserExistenceFilter(userRepository));
     }
 
     @Test